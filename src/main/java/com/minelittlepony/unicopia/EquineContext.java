@@ -1,5 +1,7 @@
 package com.minelittlepony.unicopia;
 
+import org.jetbrains.annotations.Nullable;
+
 import com.google.common.base.MoreObjects;
 import com.minelittlepony.unicopia.entity.Equine;
 import com.minelittlepony.unicopia.entity.player.Pony;
@@ -7,6 +9,7 @@ import com.minelittlepony.unicopia.entity.player.Pony;
 import net.minecraft.block.ShapeContext;
 import net.minecraft.entity.Entity;
 import net.minecraft.item.ItemUsageContext;
+import net.minecraft.world.BlockView;
 
 public interface EquineContext {
     EquineContext ABSENT = () -> Race.UNSET;
@@ -37,6 +40,28 @@ public interface EquineContext {
         return result == null ? ABSENT : result;
     }
 
+    /**
+     * Gets the context for a shape query made against the given world.
+     * Queries without an entity made while a mob is finding a path take that mob's context.
+     */
+    static EquineContext of(ShapeContext context, BlockView world) {
+        if (context == ShapeContext.absent() && world instanceof Container c) {
+            EquineContext result = c.get();
+            if (result != null) {
+                return result;
+            }
+        }
+        return of(context);
+    }
+
+    /**
+     * Gets the context of the mob a world view is being used to find a path for, or ABSENT if it isn't.
+     */
+    static EquineContext of(BlockView world) {
+        EquineContext result = world instanceof Container c ? c.get() : null;
+        return result == null ? ABSENT : result;
+    }
+
     static EquineContext of(ItemUsageContext context) {
         return MoreObjects.firstNonNull(Pony.of(context.getPlayer()), ABSENT);
     }
@@ -51,4 +76,11 @@ public interface EquineContext {
     interface Container {
         EquineContext get();
     }
+
+    /**
+     * A world view used for finding a path that carries the context of the mob it was created for.
+     */
+    interface PathingView extends Container {
+        void setEquineContext(@Nullable EquineContext context);
+    }
 }
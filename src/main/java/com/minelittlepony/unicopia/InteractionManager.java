@@ -1,7 +1,6 @@
 package com.minelittlepony.unicopia;
 
 import java.util.Optional;
-import java.util.Stack;
 import java.util.UUID;
 
 import org.jetbrains.annotations.NotNull;
@@ -38,8 +37,6 @@ public class InteractionManager {
     @Nullable
     private SyncedConfig config;
 
-    private final Stack<EquineContext> equineContext = new Stack<>();
-
     public static InteractionManager getInstance() {
         return INSTANCE;
     }
@@ -113,22 +110,8 @@ public class InteractionManager {
 
     }
 
-    public void setEquineContext(EquineContext context) {
-        equineContext.push(context);
-    }
-
-    public void clearEquineContext() {
-        if (!equineContext.isEmpty()) {
-            equineContext.pop();
-        }
-    }
-
     public EquineContext getEquineContext() {
-        return getClientPony().map(EquineContext.class::cast).orElseGet(this::getPathingEquineContext);
-    }
-
-    public EquineContext getPathingEquineContext() {
-        return equineContext.isEmpty() ? EquineContext.ABSENT : equineContext.peek();
+        return getClientPony().map(EquineContext.class::cast).orElse(EquineContext.ABSENT);
     }
 
     public Optional<Pony> getClientPony() {
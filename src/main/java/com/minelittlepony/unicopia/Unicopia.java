@@ -1,6 +1,7 @@
 package com.minelittlepony.unicopia;
 
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.event.player.PlayerBlockBreakEvents;
 import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
@@ -81,6 +82,14 @@ public class Unicopia implements ModInitializer {
                 Debug.runTests(w);
             }
         });
+        ServerChunkEvents.CHUNK_LOAD.register((w, chunk) -> {
+            ((BlockDestructionManager.Source)w).getDestructionManager().onChunkLoaded(chunk.getPos());
+            ZapAppleStageStore.get(w).onChunkLoaded(chunk);
+        });
+        ServerChunkEvents.CHUNK_UNLOAD.register((w, chunk) -> {
+            ((BlockDestructionManager.Source)w).getDestructionManager().onChunkUnloaded(chunk.getPos());
+            ZapAppleStageStore.get(w).onChunkUnloaded(chunk.getPos());
+        });
         PlayerBlockBreakEvents.AFTER.register(SeaponyGraceStatusEffect::processBlockChange);
         NocturnalSleepManager.bootstrap();
 
@@ -13,6 +13,7 @@ import com.minelittlepony.unicopia.particle.ParticleUtils;
 import com.minelittlepony.unicopia.recipe.TransformCropsRecipe;
 import com.minelittlepony.unicopia.recipe.URecipes;
 import com.minelittlepony.unicopia.server.world.BlockDestructionManager;
+import com.minelittlepony.unicopia.server.world.ModificationMask;
 import com.minelittlepony.unicopia.server.world.ModificationType;
 import com.minelittlepony.unicopia.util.TraceHelper;
 import com.minelittlepony.unicopia.util.VecHelper;
@@ -28,6 +29,7 @@ import net.minecraft.item.Items;
 import net.minecraft.network.RegistryByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.particle.ParticleTypes;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec3d;
@@ -69,10 +71,13 @@ public class EarthPonyGrowAbility implements Ability<Pos> {
         int count = 0;
 
         if (!applyDirectly(player, data.pos())) {
+            BlockBox area = BlockBox.create(data.pos().add(-2, -2, -2), data.pos().add(2, 2, 2));
+            ModificationMask mask = player.getModificationMask(area, ModificationType.PHYSICAL);
+
             for (BlockPos pos : BlockPos.iterate(
                     data.pos().add(-2, -2, -2),
                     data.pos().add( 2,  2,  2))) {
-                if (player.canModifyAt(pos, ModificationType.PHYSICAL)) {
+                if (mask.canModifyAt(pos)) {
                     count += applySingle(player, player.asWorld(), player.asWorld().getBlockState(pos), pos);
                 }
             }
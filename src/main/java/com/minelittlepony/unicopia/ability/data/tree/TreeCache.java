@@ -0,0 +1,109 @@
+package com.minelittlepony.unicopia.ability.data.tree;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.google.common.base.Suppliers;
+import com.minelittlepony.unicopia.util.PosHelper;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+/**
+ * Remembers the logs and leaves found for each tree, by the position of its base, until one of its blocks
+ * (or a block touching it) changes.
+ * <p>
+ * Each block belongs to at most one cached tree. Where two trees' canopies touch, caching one evicts the other.
+ * Trees are also remembered with the type they were collected as, since another type may walk the same base differently.
+ * <p>
+ * The cache is bounded both by the number of trees and by the number of blocks they claim between them.
+ * When either is exceeded the least recently used trees are evicted one at a time.
+ */
+public class TreeCache {
+    private static final int MAX_CACHED_TREES = 256;
+    private static final int MAX_CLAIMED_BLOCKS = 65536;
+
+    private final Long2ObjectLinkedOpenHashMap<Entry> trees = new Long2ObjectLinkedOpenHashMap<>();
+    private final Long2LongMap owners = new Long2LongOpenHashMap();
+
+    public static Supplier<TreeCache> create(World world) {
+        return Suppliers.memoize(TreeCache::new);
+    }
+
+    public static TreeCache of(World world) {
+        return ((TreeCache.Source)world).getTreeCache();
+    }
+
+    private TreeCache() { }
+
+    public TreeType.Tree get(BlockPos base, TreeType type, Supplier<TreeType.Tree> factory) {
+        long root = base.asLong();
+        Entry entry = trees.getAndMoveToLast(root);
+        if (entry != null && !Objects.equals(entry.type(), type)) {
+            remove(root);
+            entry = null;
+        }
+        if (entry == null) {
+            TreeType.Tree tree = factory.get();
+            int size = 1 + tree.logs().size() + tree.leaves().size();
+            while (!trees.isEmpty() && (trees.size() >= MAX_CACHED_TREES || owners.size() + size > MAX_CLAIMED_BLOCKS)) {
+                remove(trees.firstLongKey());
+            }
+            trees.putAndMoveToLast(root, new Entry(type, tree));
+            claim(root, root);
+            tree.logs().forEach(pos -> claim(pos, root));
+            tree.leaves().forEach(pos -> claim(pos, root));
+            return tree;
+        }
+        return entry.tree();
+    }
+
+    public void onBlockChanged(BlockPos pos) {
+        if (trees.isEmpty()) {
+            return;
+        }
+        long packed = pos.asLong();
+        invalidate(packed);
+        for (var direction : PosHelper.ALL) {
+            invalidate(BlockPos.offset(packed, direction));
+        }
+    }
+
+    private void claim(long pos, long root) {
+        long owner = owners.getOrDefault(pos, root);
+        if (owner != root) {
+            remove(owner);
+        }
+        owners.put(pos, root);
+    }
+
+    private void invalidate(long pos) {
+        if (owners.containsKey(pos)) {
+            remove(owners.get(pos));
+        }
+    }
+
+    private void remove(long root) {
+        Entry entry = trees.remove(root);
+        if (entry != null) {
+            release(root, root);
+            entry.tree().logs().forEach(pos -> release(pos, root));
+            entry.tree().leaves().forEach(pos -> release(pos, root));
+        }
+    }
+
+    private void release(long pos, long root) {
+        if (owners.containsKey(pos) && owners.get(pos) == root) {
+            owners.remove(pos);
+        }
+    }
+
+    private record Entry(TreeType type, TreeType.Tree tree) { }
+
+    public interface Source {
+        TreeCache getTreeCache();
+    }
+}
@@ -4,6 +4,10 @@ import java.util.Optional;
 
 import com.minelittlepony.unicopia.util.PosHelper;
 
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
@@ -19,7 +23,11 @@ public class TreeTraverser {
     private PosHelper.PositionRecord logs = new PosHelper.PositionRecord();
     private PosHelper.PositionRecord leaves = new PosHelper.PositionRecord();
 
-    private final int maxRecurse = 50;
+    private static final int MAX_DEPTH = 50;
+    /**
+     * The most blocks a single traversal will visit, so forests of touching canopies can't turn into a flood fill.
+     */
+    private static final int MAX_SIZE = 8192;
 
     public TreeTraverser(TreeType type) {
         this.type = type;
@@ -39,30 +47,42 @@ public class TreeTraverser {
         traverse(w, pos.mutableCopy());
     }
 
-    private void traverse(World w, BlockPos.Mutable pos) {
+    private void traverse(World w, BlockPos.Mutable start) {
         logs = new PosHelper.PositionRecord();
         leaves = new PosHelper.PositionRecord();
-        innerTraverse(w, pos, 0);
-    }
 
-    private void innerTraverse(World w, BlockPos.Mutable pos, int recurseLevel) {
-        if (recurseLevel >= maxRecurse || logs.hasVisited(pos) || leaves.hasVisited(pos)) {
-            return;
-        }
+        LongSet rejected = new LongOpenHashSet();
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        IntArrayFIFOQueue depths = new IntArrayFIFOQueue();
+        queue.enqueue(start.asLong());
+        depths.enqueue(0);
 
-        BlockState state = w.getBlockState(pos);
-        boolean yay = false;
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        while (!queue.isEmpty() && logs.size() + leaves.size() < MAX_SIZE) {
+            long packed = queue.dequeueLong();
+            int depth = depths.dequeueInt();
 
-        if (type.isLeaves(state)) {
-            leaves.visit(pos);
-            yay = true;
-        } else if (type.isLog(state)) {
-            logs.visit(pos);
-            yay = true;
-        }
+            if (logs.hasVisited(packed) || leaves.hasVisited(packed) || rejected.contains(packed)) {
+                continue;
+            }
+
+            BlockState state = w.getBlockState(pos.set(packed));
 
-        if (yay) {
-            PosHelper.fastAll(pos, p -> innerTraverse(w, p, recurseLevel + 1), WIDE_DIRS);
+            if (type.isLeaves(state)) {
+                leaves.visit(packed);
+            } else if (type.isLog(state)) {
+                logs.visit(packed);
+            } else {
+                rejected.add(packed);
+                continue;
+            }
+
+            if (depth + 1 < MAX_DEPTH) {
+                for (Direction direction : WIDE_DIRS) {
+                    queue.enqueue(BlockPos.offset(packed, direction));
+                    depths.enqueue(depth + 1);
+                }
+            }
         }
     }
 
@@ -29,32 +29,7 @@ public interface TreeType {
         if (logs == NONE || leaves == NONE || Objects.equals(logs, leaves)) {
             return logs;
         }
-        return new TreeType() {
-            @Override
-            public boolean isLeaves(BlockState state) {
-                return leaves.isLeaves(state);
-            }
-
-            @Override
-            public boolean isLog(BlockState state) {
-                return logs.isLog(state);
-            }
-
-            @Override
-            public ItemStack pickRandomStack(Random random, BlockState state) {
-                return (isLeaves(state) ? leaves : logs).pickRandomStack(random, state);
-            }
-
-            @Override
-            public boolean isWide() {
-                return logs.isWide();
-            }
-
-            @Override
-            public float leavesRatio() {
-                return logs.leavesRatio();
-            }
-        };
+        return new Composite(logs, leaves);
     }
 
     boolean isLeaves(BlockState state);
@@ -83,11 +58,40 @@ public interface TreeType {
         }
         TreeTraverser traverser = new TreeTraverser(this);
         return traverser.findBase(w, pos).map(base -> {
-            PosHelper.PositionRecord logs = traverser.collectLogs(w, base);
-            PosHelper.PositionRecord leaves = traverser.collectLeaves(w, base);
-            return logs.size() <= (leaves.size() * leavesRatio()) ? new Tree(logs, leaves) : null;
+            Tree tree = TreeCache.of(w).get(base, this, () -> new Tree(traverser.collectLogs(w, base), traverser.collectLeaves(w, base)));
+            return tree.logs().size() <= (tree.leaves().size() * leavesRatio()) ? tree : null;
         });
     }
 
     record Tree(PosHelper.PositionRecord logs, PosHelper.PositionRecord leaves) { }
+
+    /**
+     * A tree whose logs are of one type and leaves another. Compared by value so trees cached for one can be found again.
+     */
+    record Composite(TreeType logs, TreeType leaves) implements TreeType {
+        @Override
+        public boolean isLeaves(BlockState state) {
+            return leaves.isLeaves(state);
+        }
+
+        @Override
+        public boolean isLog(BlockState state) {
+            return logs.isLog(state);
+        }
+
+        @Override
+        public ItemStack pickRandomStack(Random random, BlockState state) {
+            return (isLeaves(state) ? leaves : logs).pickRandomStack(random, state);
+        }
+
+        @Override
+        public boolean isWide() {
+            return logs.isWide();
+        }
+
+        @Override
+        public float leavesRatio() {
+            return logs.leavesRatio();
+        }
+    }
 }
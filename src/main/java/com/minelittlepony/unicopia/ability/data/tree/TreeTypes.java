@@ -1,14 +1,18 @@
 package com.minelittlepony.unicopia.ability.data.tree;
 
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+
 import com.minelittlepony.unicopia.util.PosHelper;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMaps;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.LeavesBlock;
 import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
 import net.minecraft.registry.tag.BlockTags;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
@@ -17,28 +21,40 @@ import net.minecraft.util.math.random.Random;
 import net.minecraft.world.World;
 
 public class TreeTypes {
-    private static Set<TreeType> entries = new HashSet<>();
+    private static volatile Index index = new Index(Reference2ObjectMaps.emptyMap(), Reference2ObjectMaps.emptyMap());
 
     private static final TreeType any1x = createDynamic(false);
     private static final TreeType any2x = createDynamic(true);
 
     public static void load(Map<Identifier, TreeTypeLoader.TreeTypeDef> types) {
-        entries = types.entrySet().stream().map(e -> e.getValue().toTreeType(e.getKey())).collect(Collectors.toSet());
+        Reference2ObjectMap<Block, TreeType> logs = new Reference2ObjectOpenHashMap<>();
+        Reference2ObjectMap<Block, TreeType> leaves = new Reference2ObjectOpenHashMap<>();
+        types.forEach((id, def) -> {
+            TreeType type = def.toTreeType(id);
+            def.logs().forEach(log -> Registries.BLOCK.getOrEmpty(log).ifPresent(block -> logs.putIfAbsent(block, type)));
+            def.leaves().forEach(leaf -> Registries.BLOCK.getOrEmpty(leaf).ifPresent(block -> leaves.putIfAbsent(block, type)));
+        });
+        index = new Index(logs, leaves);
     }
 
     static TreeType get(BlockState state, BlockPos pos, World world) {
-        return entries.stream()
-                .filter(type -> type.matches(state))
-                .findFirst()
-                .map(type -> TreeType.of(type, findLeavesType(type, world, pos)))
-                .orElseGet(() -> any1x.matches(state) ? (PosHelper.fastAny(pos, p -> world.getBlockState(p).isOf(state.getBlock()), PosHelper.HORIZONTAL) ? any2x : any1x) : TreeType.NONE);
+        TreeType type = get(state);
+        if (type != TreeType.NONE) {
+            return TreeType.of(type, findLeavesType(type, world, pos));
+        }
+        return any1x.matches(state) ? (PosHelper.fastAny(pos, p -> world.getBlockState(p).isOf(state.getBlock()), PosHelper.HORIZONTAL) ? any2x : any1x) : TreeType.NONE;
     }
 
     static TreeType get(BlockState state) {
-        return entries.stream()
-                .filter(type -> type.matches(state))
-                .findFirst()
-                .orElse(TreeType.NONE);
+        Index index = TreeTypes.index;
+        TreeType type = index.logs().get(state.getBlock());
+        if (type == null) {
+            type = index.leaves().get(state.getBlock());
+            if (type == null || !TreeTypeImpl.isNonPersistent(state)) {
+                return TreeType.NONE;
+            }
+        }
+        return type;
     }
 
     private static TreeType findLeavesType(TreeType baseType, World w, BlockPos pos) {
@@ -55,12 +71,12 @@ public class TreeTypes {
         return new TreeType() {
             @Override
             public boolean isLeaves(BlockState state) {
-                return (state.isIn(BlockTags.LEAVES) || state.getBlock() instanceof LeavesBlock || entries.stream().anyMatch(t -> t.isLeaves(state))) && TreeTypeImpl.isNonPersistent(state);
+                return (state.isIn(BlockTags.LEAVES) || state.getBlock() instanceof LeavesBlock || index.leaves().containsKey(state.getBlock())) && TreeTypeImpl.isNonPersistent(state);
             }
 
             @Override
             public boolean isLog(BlockState state) {
-                return state.isIn(BlockTags.LOGS_THAT_BURN) || entries.stream().anyMatch(t -> t.isLog(state));
+                return state.isIn(BlockTags.LOGS_THAT_BURN) || index.logs().containsKey(state.getBlock());
             }
 
             @Override
@@ -83,4 +99,9 @@ public class TreeTypes {
             }
         };
     }
+
+    /**
+     * The loaded tree types, keyed by each of their log and leaves blocks.
+     */
+    private record Index(Reference2ObjectMap<Block, TreeType> logs, Reference2ObjectMap<Block, TreeType> leaves) {}
 }
@@ -14,15 +14,18 @@ import com.minelittlepony.unicopia.entity.*;
 import com.minelittlepony.unicopia.entity.damage.UDamageSources;
 import com.minelittlepony.unicopia.particle.ParticleSource;
 import com.minelittlepony.unicopia.server.world.Ether;
+import com.minelittlepony.unicopia.server.world.ModificationMask;
 import com.minelittlepony.unicopia.server.world.ModificationType;
 import com.minelittlepony.unicopia.server.world.OfflinePlayerCache;
 import com.minelittlepony.unicopia.util.SoundEmitter;
 import com.minelittlepony.unicopia.util.VecHelper;
+import com.minelittlepony.unicopia.util.shape.Shape;
 
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.GameRules;
@@ -91,6 +94,22 @@ public interface Caster<E extends Entity> extends
         return !mod.checkMagical() || canCastAt(Vec3d.ofCenter(pos));
     }
 
+    /**
+     * Checks every block inside a shape at once.
+     * Use this in place of {@link #canModifyAt(BlockPos, ModificationType)} when modifying many blocks together.
+     */
+    default ModificationMask getModificationMask(Shape shape, ModificationType mod) {
+        return ModificationMask.of(this, shape, mod);
+    }
+
+    /**
+     * Checks every block inside a region at once.
+     * Use this in place of {@link #canModifyAt(BlockPos, ModificationType)} when modifying many blocks together.
+     */
+    default ModificationMask getModificationMask(BlockBox region, ModificationType mod) {
+        return ModificationMask.of(this, region, mod);
+    }
+
     default Stream<Caster<?>> findAllSpellsInRange(double radius) {
         return findAllSpellsInRange(radius, null);
     }
@@ -112,7 +131,7 @@ public interface Caster<E extends Entity> extends
     }
 
     default boolean canCastAt(Vec3d pos) {
-        return !Ether.get(asWorld()).anyMatch(SpellType.ARCANE_PROTECTION, entry -> {
+        return !Ether.get(asWorld()).anyMatch(SpellType.ARCANE_PROTECTION, BlockPos.ofFloored(pos), entry -> {
             var target = entry.entity.getTarget().orElse(null);
             if (target != null && target.pos().distanceTo(pos) <= entry.getRadius()) {
                 Caster<?> caster = entry.getCaster();
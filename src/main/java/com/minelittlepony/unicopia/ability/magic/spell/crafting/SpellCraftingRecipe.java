@@ -118,9 +118,9 @@ public class SpellCraftingRecipe implements SpellbookRecipe {
             return false;
         }
 
-        return requiredTraits.test(SpellTraits.union(
-            ingredients.stream().map(pair -> SpellTraits.of(pair.getSecond()).multiply(pair.getFirst())).toArray(SpellTraits[]::new)
-        ));
+        SpellTraits.Builder traits = new SpellTraits.Builder();
+        ingredients.forEach(pair -> traits.add(SpellTraits.of(pair.getSecond()), pair.getFirst()));
+        return requiredTraits.test(traits.build());
     }
 
     @Override
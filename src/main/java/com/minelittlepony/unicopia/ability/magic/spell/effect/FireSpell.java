@@ -11,6 +11,9 @@ import com.minelittlepony.unicopia.block.state.StateMaps;
 import com.minelittlepony.unicopia.particle.ParticleUtils;
 import com.minelittlepony.unicopia.projectile.MagicProjectileEntity;
 import com.minelittlepony.unicopia.projectile.ProjectileDelegate;
+import com.minelittlepony.unicopia.server.world.ModificationMask;
+import com.minelittlepony.unicopia.server.world.ModificationType;
+import com.minelittlepony.unicopia.util.shape.Shape;
 import com.minelittlepony.unicopia.util.shape.Sphere;
 
 import net.minecraft.block.Block;
@@ -67,8 +70,11 @@ public class FireSpell extends AbstractAreaEffectSpell implements ProjectileDele
             generateParticles(source);
         }
 
-        return new Sphere(false, RANGE.get(getTraits())).translate(source.getOrigin()).getBlockPositions().reduce(false,
-                (r, i) -> source.canModifyAt(i) && applyBlocks(source.asWorld(), i),
+        Shape area = new Sphere(false, RANGE.get(getTraits())).translate(source.getOrigin());
+        ModificationMask mask = source.getModificationMask(area, ModificationType.EITHER);
+
+        return area.getBlockPositions().reduce(false,
+                (r, i) -> mask.canModifyAt(i) && applyBlocks(source.asWorld(), i),
                 (a, b) -> a || b)
                 || applyEntities(source, source.getOriginVector());
     }
@@ -1,7 +1,15 @@
 package com.minelittlepony.unicopia.ability.magic.spell.effect;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.jetbrains.annotations.Nullable;
 
 import com.minelittlepony.unicopia.USounds;
 import com.minelittlepony.unicopia.ability.magic.Caster;
@@ -31,6 +39,7 @@ import net.minecraft.registry.RegistryWrapper.WrapperLookup;
 import net.minecraft.registry.tag.TagKey;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.BlockView;
 import net.minecraft.world.World;
@@ -43,9 +52,22 @@ public class HydrophobicSpell extends AbstractSpell {
 
     static final TooltipFactory TOOLTIP = TooltipFactory.of(ShieldSpell.CAST_ON, ShieldSpell.RANGE);
 
+    /**
+     * How often the whole shell is checked again, to catch fluids that couldn't be cleared before (eg. protected blocks)
+     * but since can be.
+     */
+    private static final int RESCAN_INTERVAL = 200;
+
     private final TagKey<Fluid> affectedFluid;
 
-    private final Set<Entry> storedFluidPositions = new HashSet<>();
+    private final Map<BlockPos, Entry> storedFluidPositions = new HashMap<>();
+    /**
+     * Positions where fluid has appeared since the last tick.
+     */
+    private final Set<BlockPos> changedPositions = new HashSet<>();
+
+    @Nullable
+    private Shell lastShell;
 
     protected HydrophobicSpell(CustomisedSpellType<?> type, TagKey<Fluid> affectedFluid) {
         super(type);
@@ -65,41 +87,31 @@ public class HydrophobicSpell extends AbstractSpell {
         if (!source.isClient()) {
             World world = source.asWorld();
 
-            Shape area = new Sphere(false, getRange(source)).translate(source.getOriginVector());
-
-            storedFluidPositions.removeIf(entry -> {
-               if (!area.isPointInside(Vec3d.ofCenter(entry.pos()))) {
-                   if (source.canModifyAt(entry.pos())) {
-                       entry.restore(world);
-                   }
-                   return true;
-               }
-
-               return false;
-            });
-
-            area.getBlockPositions().forEach(pos -> {
-                pos = new BlockPos(pos);
-                BlockState state = world.getBlockState(pos);
+            Shell shell = new Shell(source.getOriginVector(), getRange(source));
 
-                if (source.canModifyAt(pos) && state.getFluidState().isIn(affectedFluid)) {
-                    Block block = state.getBlock();
+            if (!shell.equals(lastShell)) {
+                updateShell(source, world, lastShell, shell);
+                lastShell = shell;
+            } else if (source.asEntity().age % RESCAN_INTERVAL == 0) {
+                forEachOutside(shell, null, pos -> displaceFluid(source, world, pos));
+            }
 
-                    if (block instanceof FluidBlock) {
-                        world.setBlockState(pos, Blocks.AIR.getDefaultState(), Block.NOTIFY_LISTENERS);
-                        storedFluidPositions.add(new Entry(pos, state));
-                    } else if (state.contains(Properties.WATERLOGGED)) {
-                        world.setBlockState(pos, state.cycle(Properties.WATERLOGGED), Block.NOTIFY_LISTENERS);
-                        storedFluidPositions.add(new Entry(pos, state));
+            if (!changedPositions.isEmpty()) {
+                // clearing fluids changes blocks too, so work from a copy
+                List<BlockPos> changed = new ArrayList<>(changedPositions);
+                changedPositions.clear();
+                for (BlockPos pos : changed) {
+                    if (shell.contains(pos) && !storedFluidPositions.containsKey(pos)) {
+                        displaceFluid(source, world, pos);
                     }
                 }
-            });
+            }
 
             if (!source.subtractEnergyCost(storedFluidPositions.isEmpty() ? 0.001F : 0.02F)) {
                 setDead();
             }
 
-            double range = getRange(source);
+            double range = shell.radius();
             Ether.get(source.asWorld()).getOrCreate(this, source).setRadius((float)range);
 
             source.spawnParticles(new Sphere(true, range), 10, pos -> {
@@ -121,10 +133,104 @@ public class HydrophobicSpell extends AbstractSpell {
         return !isDead();
     }
 
+    /**
+     * Called when fluid is placed or flows into a position inside this spell's area
+     * so it can be cleared out again on the next tick.
+     */
+    public void onFluidPlaced(BlockPos pos) {
+        if (lastShell != null && lastShell.contains(pos)) {
+            changedPositions.add(pos.toImmutable());
+        }
+    }
+
+    /**
+     * Moves the shell from one place (or size) to another, restoring the blocks it has left and
+     * clearing out the ones it has entered. Blocks inside both are left alone.
+     */
+    private void updateShell(Caster<?> source, World world, @Nullable Shell from, Shell to) {
+        if (from == null) {
+            // positions loaded from nbt weren't cleared by this shell so have to be checked one at a time
+            storedFluidPositions.values().removeIf(entry -> {
+                if (!to.contains(entry.pos())) {
+                    if (source.canModifyAt(entry.pos())) {
+                        entry.restore(world);
+                    }
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        // each shell is walked on its own so a caster that jumps a long way only costs the two shells and not the space between them
+        if (from != null) {
+            forEachOutside(from, to, pos -> restoreFluid(source, world, pos));
+        }
+        forEachOutside(to, from, pos -> displaceFluid(source, world, pos));
+    }
+
+    /**
+     * Passes every position inside a shell that isn't also inside the excluded one to the consumer.
+     */
+    private static void forEachOutside(Shell shell, @Nullable Shell excluded, Consumer<BlockPos> consumer) {
+        BlockPos.Mutable mutable = new BlockPos.Mutable();
+        for (int x = shell.getMinX(); x <= shell.getMaxX(); x++) {
+            for (int z = shell.getMinZ(); z <= shell.getMaxZ(); z++) {
+                final int fx = x;
+                final int fz = z;
+                forEachOutside(
+                        shell.getMinY(x, z), shell.getMaxY(x, z),
+                        excluded == null ? Integer.MAX_VALUE : excluded.getMinY(x, z),
+                        excluded == null ? Integer.MIN_VALUE : excluded.getMaxY(x, z),
+                        y -> consumer.accept(mutable.set(fx, y, fz))
+                );
+            }
+        }
+    }
+
+    private static void forEachOutside(int minY, int maxY, int excludedMinY, int excludedMaxY, IntConsumer consumer) {
+        if (excludedMinY > excludedMaxY) {
+            for (int y = minY; y <= maxY; y++) {
+                consumer.accept(y);
+            }
+            return;
+        }
+        for (int y = minY; y <= Math.min(maxY, excludedMinY - 1); y++) {
+            consumer.accept(y);
+        }
+        for (int y = Math.max(minY, excludedMaxY + 1); y <= maxY; y++) {
+            consumer.accept(y);
+        }
+    }
+
+    private void restoreFluid(Caster<?> source, World world, BlockPos pos) {
+        Entry entry = storedFluidPositions.remove(pos);
+        if (entry != null && source.canModifyAt(pos)) {
+            entry.restore(world);
+        }
+    }
+
+    private void displaceFluid(Caster<?> source, World world, BlockPos pos) {
+        BlockState state = world.getBlockState(pos);
+
+        if (state.getFluidState().isIn(affectedFluid) && source.canModifyAt(pos)) {
+            Block block = state.getBlock();
+
+            if (block instanceof FluidBlock) {
+                world.setBlockState(pos, Blocks.AIR.getDefaultState(), Block.NOTIFY_LISTENERS);
+                storedFluidPositions.put(pos.toImmutable(), new Entry(pos.toImmutable(), state));
+            } else if (state.contains(Properties.WATERLOGGED)) {
+                world.setBlockState(pos, state.cycle(Properties.WATERLOGGED), Block.NOTIFY_LISTENERS);
+                storedFluidPositions.put(pos.toImmutable(), new Entry(pos.toImmutable(), state));
+            }
+        }
+    }
+
     @Override
     protected void onDestroyed(Caster<?> caster) {
         super.onDestroyed(caster);
-        storedFluidPositions.removeIf(entry -> {
+        lastShell = null;
+        changedPositions.clear();
+        storedFluidPositions.values().removeIf(entry -> {
             if (caster.canModifyAt(entry.pos())) {
                 entry.restore(caster.asWorld());
             }
@@ -135,14 +241,18 @@ public class HydrophobicSpell extends AbstractSpell {
     @Override
     public void toNBT(NbtCompound compound, WrapperLookup lookup) {
         super.toNBT(compound, lookup);
-        compound.put("storedFluidPositions", NbtSerialisable.encode(Entry.SET_CODEC, storedFluidPositions, lookup));
+        compound.put("storedFluidPositions", NbtSerialisable.encode(Entry.SET_CODEC, new HashSet<>(storedFluidPositions.values()), lookup));
     }
 
     @Override
     public void fromNBT(NbtCompound compound, WrapperLookup lookup) {
         super.fromNBT(compound, lookup);
         storedFluidPositions.clear();
-        NbtSerialisable.decode(Entry.SET_CODEC, compound.get("storedFluidPositions"), lookup).ifPresent(storedFluidPositions::addAll);
+        changedPositions.clear();
+        lastShell = null;
+        NbtSerialisable.decode(Entry.SET_CODEC, compound.get("storedFluidPositions"), lookup).ifPresent(entries -> {
+            entries.forEach(entry -> storedFluidPositions.put(entry.pos(), entry));
+        });
     }
     /**
      * Calculates the maximum radius of the shield. aka The area of effect.
@@ -155,6 +265,49 @@ public class HydrophobicSpell extends AbstractSpell {
         return range;
     }
 
+    /**
+     * The solid sphere of blocks cleared by this spell, computed one column at a time.
+     * A block is inside if its center is within the radius of the origin.
+     */
+    record Shell(Vec3d origin, double radius) {
+        int getMinX() {
+            return MathHelper.floor(origin.x - radius);
+        }
+
+        int getMaxX() {
+            return MathHelper.floor(origin.x + radius);
+        }
+
+        int getMinZ() {
+            return MathHelper.floor(origin.z - radius);
+        }
+
+        int getMaxZ() {
+            return MathHelper.floor(origin.z + radius);
+        }
+
+        int getMinY(int x, int z) {
+            double halfHeight = getHalfHeight(x, z);
+            return halfHeight < 0 ? Integer.MAX_VALUE : MathHelper.ceil(origin.y - halfHeight - 0.5);
+        }
+
+        int getMaxY(int x, int z) {
+            double halfHeight = getHalfHeight(x, z);
+            return halfHeight < 0 ? Integer.MIN_VALUE : MathHelper.floor(origin.y + halfHeight - 0.5);
+        }
+
+        boolean contains(BlockPos pos) {
+            return Vec3d.ofCenter(pos).squaredDistanceTo(origin) <= radius * radius;
+        }
+
+        private double getHalfHeight(int x, int z) {
+            double dx = x + 0.5 - origin.x;
+            double dz = z + 0.5 - origin.z;
+            double remainder = radius * radius - dx * dx - dz * dz;
+            return remainder < 0 ? -1 : Math.sqrt(remainder);
+        }
+    }
+
     record Entry (BlockPos pos, BlockState blockState) {
         public static final Codec<Entry> CODEC = RecordCodecBuilder.create(instance -> instance.group(
             BlockPos.CODEC.fieldOf("pos").forGetter(Entry::pos),
@@ -186,7 +339,7 @@ public class HydrophobicSpell extends AbstractSpell {
             return false;
         }
 
-        return Ether.get(sw).anyMatch(SpellType.HYDROPHOBIC, entry -> {
+        return Ether.get(sw).anyMatch(SpellType.HYDROPHOBIC, pos, entry -> {
             var target = entry.entity.getTarget().orElse(null);
             if (target == null || !pos.isWithinDistance(target.pos(), entry.getRadius() + 1)) {
                 return false;
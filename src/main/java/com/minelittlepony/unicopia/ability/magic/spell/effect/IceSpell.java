@@ -14,8 +14,11 @@ import com.minelittlepony.unicopia.ability.magic.spell.trait.Trait;
 import com.minelittlepony.unicopia.block.state.StateMaps;
 import com.minelittlepony.unicopia.block.state.StatePredicate;
 import com.minelittlepony.unicopia.particle.ParticleUtils;
+import com.minelittlepony.unicopia.server.world.ModificationMask;
+import com.minelittlepony.unicopia.server.world.ModificationType;
 import com.minelittlepony.unicopia.util.PosHelper;
 import com.minelittlepony.unicopia.util.VecHelper;
+import com.minelittlepony.unicopia.util.shape.Shape;
 import com.minelittlepony.unicopia.util.shape.Sphere;
 
 import net.minecraft.block.*;
@@ -49,8 +52,11 @@ public class IceSpell extends AbstractSpell {
         boolean submerged = source.asEntity().isSubmergedInWater() || source.asEntity().isSubmergedIn(FluidTags.LAVA);
         float radius = RANGE.get(getTraits());
 
-        long blocksAffected = new Sphere(false, radius).translate(source.getOrigin()).getBlockPositions().filter(i -> {
-            if (source.canModifyAt(i) && applyBlockSingle(source.asEntity(), source.asWorld(), i, situation)) {
+        Shape area = new Sphere(false, radius).translate(source.getOrigin());
+        ModificationMask mask = source.getModificationMask(area, ModificationType.EITHER);
+
+        long blocksAffected = area.getBlockPositions().filter(i -> {
+            if (mask.canModifyAt(i) && applyBlockSingle(source.asEntity(), source.asWorld(), i, situation)) {
 
                 if (submerged & source.getOrigin().isWithinDistance(i, RANGE.get(getTraits()) - 1)) {
                     BlockState state = source.asWorld().getBlockState(i);
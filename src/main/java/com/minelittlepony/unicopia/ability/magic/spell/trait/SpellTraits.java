@@ -3,13 +3,14 @@ package com.minelittlepony.unicopia.ability.magic.spell.trait;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
@@ -17,13 +18,13 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.jetbrains.annotations.Nullable;
+
 import com.minelittlepony.unicopia.Unicopia;
 import com.minelittlepony.unicopia.client.gui.ItemTraitsTooltipRenderer;
 import com.minelittlepony.unicopia.item.component.UDataComponentTypes;
 import com.minelittlepony.unicopia.util.InventoryUtil;
-import com.mojang.datafixers.util.Pair;
 import com.mojang.serialization.Codec;
-import com.mojang.serialization.DataResult;
 
 import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
@@ -33,7 +34,6 @@ import net.minecraft.item.Item;
 import net.minecraft.item.SpawnEggItem;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtOps;
 import net.minecraft.network.PacketByteBuf;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.text.Text;
@@ -41,16 +41,25 @@ import net.minecraft.util.Identifier;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.registry.Registries;
 
+/**
+ * An immutable set of trait amounts.
+ * <p>
+ * Amounts are kept in a flat array indexed by each trait's ordinal, with traits that aren't present held at zero,
+ * so arithmetic is a loop over that array. Use a {@link Builder} to accumulate traits from several sources
+ * without creating a new instance for every step.
+ */
 public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
-    public static final SpellTraits EMPTY = new SpellTraits(Map.of());
-    private static final SpellTraits SPAWN_EGG_TRAITS = new SpellTraits(Map.of(Trait.LIFE, 20F));
+    private static final Trait[] TRAITS = Trait.values();
+
+    public static final SpellTraits EMPTY = new SpellTraits(new float[TRAITS.length]);
+    private static final SpellTraits SPAWN_EGG_TRAITS = new Builder().with(Trait.LIFE, 20F).build();
 
     private static Map<Identifier, SpellTraits> REGISTRY = new HashMap<>();
     static final Map<Trait, List<Item>> ITEMS = new HashMap<>();
 
-    public static final Codec<SpellTraits> CODEC = Codec.unboundedMap(Trait.CODEC, Codec.FLOAT).flatXmap(
-            map -> DataResult.success(fromEntries(map.entrySet().stream()).orElse(EMPTY)),
-            traits -> DataResult.success(traits.traits)
+    public static final Codec<SpellTraits> CODEC = Codec.unboundedMap(Trait.CODEC, Codec.FLOAT).xmap(
+            map -> fromEntries(map.entrySet().stream()).orElse(EMPTY),
+            SpellTraits::toMap
     );
     public static final PacketCodec<PacketByteBuf, SpellTraits> PACKET_CODEC = PacketCodec.ofStatic((a, b) -> b.write(a), SpellTraits::fromPacket);
 
@@ -77,26 +86,66 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
         return new HashMap<>(REGISTRY);
     }
 
-    private final Map<Trait, Float> traits;
+    private final float[] values;
+    private final int size;
 
-    SpellTraits(Map<Trait, Float> traits) {
-        this.traits = traits;
+    @Nullable
+    private volatile Set<Map.Entry<Trait, Float>> entries;
+
+    private SpellTraits(float[] values) {
+        this.values = values;
+        int size = 0;
+        for (float value : values) {
+            if (value != 0) {
+                size++;
+            }
+        }
+        this.size = size;
     }
 
-    SpellTraits(SpellTraits from) {
-        this(new EnumMap<>(from.traits));
+    private static SpellTraits create(float[] values) {
+        for (int i = 0; i < values.length; i++) {
+            // negative zeroes would otherwise make equal traits compare unequal
+            if (values[i] == 0) {
+                values[i] = 0;
+            }
+        }
+        SpellTraits traits = new SpellTraits(values);
+        return traits.isEmpty() ? EMPTY : traits;
     }
 
     public float getCorruption() {
-        return (float)stream().filter(e -> e.getValue() != 0).mapToDouble(e -> e.getKey().getGroup().getCorruption()).sum();
+        float corruption = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                corruption += TRAITS[i].getGroup().getCorruption();
+            }
+        }
+        return corruption;
     }
 
     public SpellTraits multiply(float factor) {
-        return factor == 0 ? EMPTY : map(v -> v * factor);
+        if (factor == 0 || isEmpty()) {
+            return EMPTY;
+        }
+        float[] values = new float[this.values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.values[i] * factor;
+        }
+        return create(values);
     }
 
     public SpellTraits add(float amount) {
-        return amount == 0 ? this : map(v -> v + amount);
+        if (amount == 0 || isEmpty()) {
+            return this;
+        }
+        float[] values = new float[this.values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (this.values[i] != 0) {
+                values[i] = this.values[i] + amount;
+            }
+        }
+        return create(values);
     }
 
     public SpellTraits add(SpellTraits traits) {
@@ -112,23 +161,37 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
             return this;
         }
 
-        Map<Trait, Float> newMap = new EnumMap<>(traits);
-        newMap.entrySet().forEach(entry -> entry.setValue(function.apply(entry.getKey(), entry.getValue())));
-        return fromEntries(newMap.entrySet().stream()).orElse(EMPTY);
+        float[] values = new float[this.values.length];
+        for (int i = 0; i < values.length; i++) {
+            if (this.values[i] != 0) {
+                values[i] = function.apply(TRAITS[i], this.values[i]);
+            }
+        }
+        return create(values);
     }
 
     public boolean isEmpty() {
-        return traits.isEmpty();
+        return size == 0;
     }
 
     public boolean isPresent() {
         return !isEmpty();
     }
 
+    /**
+     * The number of traits present.
+     */
+    public int size() {
+        return size;
+    }
+
     public boolean includes(SpellTraits other) {
-        return other.stream().allMatch(pair -> {
-            return get(pair.getKey()) >= pair.getValue();
-        });
+        for (int i = 0; i < values.length; i++) {
+            if (other.values[i] != 0 && values[i] < other.values[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -137,15 +200,32 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
     }
 
     public Set<Map.Entry<Trait, Float>> entries() {
-        return traits.entrySet();
+        Set<Map.Entry<Trait, Float>> entries = this.entries;
+        if (entries == null) {
+            Set<Map.Entry<Trait, Float>> set = new LinkedHashSet<>();
+            forEachTrait((trait, value) -> set.add(Map.entry(trait, value)));
+            this.entries = entries = Collections.unmodifiableSet(set);
+        }
+        return entries;
     }
 
     public Stream<Map.Entry<Trait, Float>> stream() {
         return entries().stream();
     }
 
+    /**
+     * Passes each trait present and its amount to the consumer without boxing them up into entries.
+     */
+    public void forEachTrait(TraitConsumer consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                consumer.accept(TRAITS[i], values[i]);
+            }
+        }
+    }
+
     public float getOrDefault(Trait trait, float def) {
-        float i = traits.getOrDefault(trait, def);
+        float i = values[trait.ordinal()];
         return i == 0 ? def : i;
     }
 
@@ -165,34 +245,50 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
         tooltip.add(1, new ItemTraitsTooltipRenderer(this));
     }
 
+    private Map<Trait, Float> toMap() {
+        Map<Trait, Float> map = new EnumMap<>(Trait.class);
+        forEachTrait(map::put);
+        return map;
+    }
+
+    /**
+     * Writes these traits to nbt keyed by trait id, so saved traits don't depend on the order traits are declared in.
+     */
     public NbtCompound toNbt() {
         NbtCompound nbt = new NbtCompound();
-        traits.forEach((key, value) -> nbt.putFloat(key.getId().toString(), value));
+        forEachTrait((trait, value) -> nbt.putFloat(trait.getId().toString(), value));
         return nbt;
     }
 
+    /**
+     * Writes a mask of the traits present followed by their amounts.
+     * Both sides of a connection share the same traits, so they are identified by their ordinals.
+     */
     @Deprecated
     public void write(PacketByteBuf buf) {
-        buf.writeInt(traits.size());
-        traits.forEach((trait, value) -> {
-            buf.writeIdentifier(trait.getId());
-            buf.writeFloat(value);
-        });
+        long mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                mask |= 1L << i;
+            }
+        }
+        buf.writeVarLong(mask);
+        forEachTrait((trait, value) -> buf.writeFloat(value));
     }
 
     @Override
     public String toString() {
-        return "SpellTraits[" + traits.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(",")) + "]";
+        return "SpellTraits[" + stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.joining(",")) + "]";
     }
 
     @Override
     public int hashCode() {
-        return traits.hashCode();
+        return Arrays.hashCode(values);
     }
 
     @Override
     public boolean equals(Object other) {
-        return this == other || other instanceof SpellTraits && Objects.equals(traits, ((SpellTraits) other).traits);
+        return this == other || other instanceof SpellTraits && Arrays.equals(values, ((SpellTraits) other).values);
     }
 
     public static SpellTraits union(SpellTraits a, SpellTraits b) {
@@ -202,18 +298,15 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
         if (b.isEmpty()) {
             return a;
         }
-        Map<Trait, Float> traits = new HashMap<>();
-        combine(traits, a.traits);
-        combine(traits, b.traits);
-        return traits.isEmpty() ? EMPTY : new SpellTraits(traits);
+        return new Builder().add(a).add(b).build();
     }
 
     public static SpellTraits union(SpellTraits...many) {
-        Map<Trait, Float> traits = new HashMap<>();
+        Builder builder = new Builder();
         for (SpellTraits i : many) {
-            combine(traits, i.traits);
+            builder.add(i);
         }
-        return traits.isEmpty() ? EMPTY : new SpellTraits(traits);
+        return builder.build();
     }
 
     public static SpellTraits of(Inventory inventory) {
@@ -221,7 +314,11 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
     }
 
     public static SpellTraits of(Collection<ItemStack> stacks) {
-        return fromEntries(stacks.stream().flatMap(a -> of(a).entries().stream())).orElse(SpellTraits.EMPTY);
+        Builder builder = new Builder();
+        for (ItemStack stack : stacks) {
+            builder.add(of(stack));
+        }
+        return builder.build();
     }
 
     public static SpellTraits of(ItemStack stack) {
@@ -261,7 +358,11 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
     }
 
     public static Optional<SpellTraits> fromNbt(NbtCompound traits) {
-        return CODEC.decode(NbtOps.INSTANCE, traits).result().map(Pair::getFirst);
+        Builder builder = new Builder();
+        for (String key : traits.getKeys()) {
+            Trait.fromId(key).ifPresent(trait -> builder.add(trait, traits.getFloat(key)));
+        }
+        return Optional.of(builder.build());
     }
 
     @Deprecated
@@ -271,27 +372,21 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
 
     @Deprecated
     public static SpellTraits fromPacket(PacketByteBuf buf) {
-        Map<Trait, Float> entries = new HashMap<>();
-        int count = buf.readInt();
-        if (count <= 0) {
+        long mask = buf.readVarLong();
+        if (mask == 0) {
             return SpellTraits.EMPTY;
         }
 
-        for (int i = 0; i < count; i++) {
-            Identifier id = buf.readIdentifier();
-            float value = buf.readFloat();
-            if (value == 0) {
-                continue;
+        float[] values = new float[TRAITS.length];
+        for (int i = 0; i < 64; i++) {
+            if ((mask & (1L << i)) != 0) {
+                float value = buf.readFloat();
+                if (i < values.length) {
+                    values[i] = value;
+                }
             }
-
-            Trait.fromId(id).ifPresent(trait -> {
-                entries.compute(trait, (k, v) -> v == null ? value : (v + value));
-            });
-        }
-        if (entries.isEmpty()) {
-            return SpellTraits.EMPTY;
         }
-        return new SpellTraits(entries);
+        return create(values);
     }
 
     public static Optional<SpellTraits> fromString(String traits) {
@@ -311,41 +406,51 @@ public final class SpellTraits implements Iterable<Map.Entry<Trait, Float>> {
     }
 
     public static Optional<SpellTraits> fromEntries(Stream<Map.Entry<Trait, Float>> entries) {
-        var result = collect(entries);
-
-        if (result.isEmpty()) {
-            return Optional.empty();
-        }
-        return Optional.of(new SpellTraits(result));
-    }
-
-    static void combine(Map<Trait, Float> to, Map<Trait, Float> from) {
-        if (from.isEmpty()) {
-            return;
-        }
-        from.forEach((trait, value) -> {
-            if (value != 0) {
-                to.compute(trait, (k, v) -> v == null ? value : (v + value));
+        Builder builder = new Builder();
+        entries.forEach(entry -> {
+            if (entry != null) {
+                builder.add(entry.getKey(), entry.getValue());
             }
         });
+        SpellTraits result = builder.build();
+        return result.isEmpty() ? Optional.empty() : Optional.of(result);
     }
 
-    static Map<Trait, Float> collect(Stream<Map.Entry<Trait, Float>> entries) {
-        return entries.filter(Objects::nonNull)
-                .filter(e -> e.getValue() != 0)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a + b, () -> new EnumMap<>(Trait.class)));
+    public interface TraitConsumer {
+        void accept(Trait trait, float value);
     }
 
+    /**
+     * Accumulates trait amounts in place.
+     */
     public static final class Builder {
-        private final Map<Trait, Float> traits = new EnumMap<>(Trait.class);
+        private final float[] values = new float[TRAITS.length];
 
         public Builder with(Trait trait, float amount) {
-            traits.put(trait, amount);
+            values[trait.ordinal()] = amount;
+            return this;
+        }
+
+        public Builder add(Trait trait, float amount) {
+            values[trait.ordinal()] += amount;
+            return this;
+        }
+
+        public Builder add(SpellTraits traits) {
+            return add(traits, 1);
+        }
+
+        public Builder add(SpellTraits traits, float factor) {
+            if (traits.isPresent() && factor != 0) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] += traits.values[i] * factor;
+                }
+            }
             return this;
         }
 
         public SpellTraits build() {
-            return fromEntries(traits.entrySet().stream()).orElse(SpellTraits.EMPTY);
+            return create(values.clone());
         }
     }
 }
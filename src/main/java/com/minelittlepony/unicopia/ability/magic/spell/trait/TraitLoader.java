@@ -3,13 +3,15 @@ package com.minelittlepony.unicopia.ability.magic.spell.trait;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import com.google.common.collect.HashMultimap;
@@ -21,6 +23,11 @@ import com.google.gson.reflect.TypeToken;
 import com.minelittlepony.unicopia.Unicopia;
 import com.minelittlepony.unicopia.util.Resources;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.fabricmc.fabric.api.resource.IdentifiableResourceReloadListener;
 import net.minecraft.resource.Resource;
 import net.minecraft.resource.ResourceManager;
@@ -32,9 +39,10 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemConvertible;
 import net.minecraft.registry.Registries;
 import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
 import net.minecraft.registry.tag.TagKey;
 
-public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Identifier, TraitLoader.TraitStream>> implements IdentifiableResourceReloadListener {
+public class TraitLoader extends SinglePreparationResourceReloader<TraitLoader.Prepared> implements IdentifiableResourceReloadListener {
     private static final Identifier ID = Unicopia.id("data/traits");
 
     @Override
@@ -43,16 +51,20 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
     }
 
     @Override
-    protected Multimap<Identifier, TraitStream> prepare(ResourceManager manager, Profiler profiler) {
+    protected Prepared prepare(ResourceManager manager, Profiler profiler) {
         profiler.startTick();
 
         Multimap<Identifier, TraitStream> prepared = HashMultimap.create();
+        Object2LongMap<String> readTimes = new Object2LongLinkedOpenHashMap<>();
+        // kept apart from the streams so identical definitions from different packs are still merged
+        Map<TraitStream, String> packs = new HashMap<>();
 
         for (var path : manager.findResources("traits", p -> p.getPath().endsWith(".json")).keySet()) {
             profiler.push(path.toString());
             try {
                 for (Resource resource : manager.getAllResources(path)) {
                     profiler.push(resource.getPackId());
+                    long start = System.nanoTime();
 
                     try (InputStreamReader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
                         JsonObject data = JsonHelper.deserialize(Resources.GSON, reader, JsonObject.class);
@@ -63,9 +75,11 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
                             prepared.removeAll(path);
                         }
                         prepared.put(path, set);
+                        packs.putIfAbsent(set, resource.getPackId());
                     } catch (JsonParseException e) {
                         Unicopia.LOGGER.error("Error reading traits file " + resource.getPackId() + ":" + path, e);
                     } finally {
+                        readTimes.mergeLong(resource.getPackId(), System.nanoTime() - start, Long::sum);
                         profiler.pop();
                     }
                 }
@@ -77,39 +91,63 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
         }
 
         profiler.endTick();
-        return prepared;
+        return new Prepared(prepared, packs, readTimes);
     }
 
     @Override
-    protected void apply(Multimap<Identifier, TraitStream> prepared, ResourceManager manager, Profiler profiler) {
+    protected void apply(Prepared prepared, ResourceManager manager, Profiler profiler) {
         profiler.startTick();
 
-        Set<Map.Entry<TraitStream.Key, SpellTraits>> newRegistry = prepared.values().stream()
-                .flatMap(TraitStream::entries)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, SpellTraits::union))
-                .entrySet();
-
-        SpellTraits.load(Registries.ITEM.getEntrySet().stream()
-                .map(entry -> Map.entry(
-                        entry.getKey().getValue(),
-                        newRegistry.stream()
-                            .filter(p -> p.getKey().test(entry.getValue()))
-                            .map(Map.Entry::getValue)
-                            .reduce(SpellTraits::union)
-                            .orElse(SpellTraits.EMPTY)
-                ))
-                .filter(entry -> !entry.getValue().isEmpty())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        // traits from every matching definition are summed, so each definition can be
+        // resolved to the items it names on its own without testing every item against it
+        Map<Identifier, SpellTraits.Builder> items = new HashMap<>();
+        Object2LongMap<String> resolveTimes = new Object2LongOpenHashMap<>();
+        Object2IntMap<String> definitionCounts = new Object2IntOpenHashMap<>();
+
+        for (TraitStream stream : prepared.streams().values()) {
+            String pack = prepared.packs().get(stream);
+            profiler.push(pack);
+            long start = System.nanoTime();
+            stream.forEach((key, traits) -> {
+                if (traits.isPresent()) {
+                    key.forEachItem(id -> items.computeIfAbsent(id, i -> new SpellTraits.Builder()).add(traits));
+                }
+                definitionCounts.mergeInt(pack, 1, Integer::sum);
+            });
+            resolveTimes.mergeLong(pack, System.nanoTime() - start, Long::sum);
+            profiler.pop();
+        }
+
+        Map<Identifier, SpellTraits> newRegistry = new HashMap<>();
+        items.forEach((id, builder) -> {
+            SpellTraits traits = builder.build();
+            if (!traits.isEmpty()) {
+                newRegistry.put(id, traits);
+            }
+        });
+        SpellTraits.load(newRegistry);
+
+        for (var entry : prepared.readTimes().object2LongEntrySet()) {
+            String pack = entry.getKey();
+            Unicopia.LOGGER.info("Loaded {} trait definitions from {} (read in {}ms, resolved in {}ms)",
+                    definitionCounts.getInt(pack),
+                    pack,
+                    TimeUnit.NANOSECONDS.toMillis(entry.getLongValue()),
+                    TimeUnit.NANOSECONDS.toMillis(resolveTimes.getLong(pack))
+            );
+        }
 
         profiler.endTick();
     }
 
+    record Prepared(Multimap<Identifier, TraitStream> streams, Map<TraitStream, String> packs, Object2LongMap<String> readTimes) {}
+
     interface TraitStream {
         TypeToken<Map<String, String>> TYPE = new TypeToken<>() {};
 
         boolean replace();
 
-        Stream<Map.Entry<Key, SpellTraits>> entries();
+        void forEach(BiConsumer<Key, SpellTraits> consumer);
 
         static TraitStream of(Identifier id, String pack, JsonObject json) {
 
@@ -136,8 +174,8 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
                 boolean replace,
                 Map<Key, SpellTraits> items) implements TraitStream {
             @Override
-            public Stream<Entry<Key, SpellTraits>> entries() {
-                return items.entrySet().stream();
+            public void forEach(BiConsumer<Key, SpellTraits> consumer) {
+                items.forEach(consumer);
             }
         }
 
@@ -146,8 +184,8 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
                 SpellTraits traits,
                 Set<Key> items) implements TraitStream {
             @Override
-            public Stream<Entry<Key, SpellTraits>> entries() {
-                return items().stream().map(item -> Map.entry(item, traits()));
+            public void forEach(BiConsumer<Key, SpellTraits> consumer) {
+                items.forEach(item -> consumer.accept(item, traits));
             }
         }
 
@@ -155,7 +193,19 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
             static Key of(String s) {
                 return s.startsWith("#") ? new Tag(TagKey.of(RegistryKeys.ITEM, Identifier.tryParse(s.substring(1)))) : new Id(Identifier.tryParse(s));
             }
+
+            /**
+             * Passes the id of every registered item this key matches to the consumer.
+             */
+            void forEachItem(Consumer<Identifier> consumer);
+
             record Tag(TagKey<Item> tag) implements Key {
+                @Override
+                public void forEachItem(Consumer<Identifier> consumer) {
+                    for (RegistryEntry<Item> entry : Registries.ITEM.iterateEntries(tag)) {
+                        consumer.accept(Registries.ITEM.getId(entry.value()));
+                    }
+                }
 
                 @SuppressWarnings("deprecation")
                 @Override
@@ -165,6 +215,13 @@ public class TraitLoader extends SinglePreparationResourceReloader<Multimap<Iden
             }
 
             record Id(Identifier id) implements Key {
+                @Override
+                public void forEachItem(Consumer<Identifier> consumer) {
+                    if (id != null && Registries.ITEM.containsId(id)) {
+                        consumer.accept(id);
+                    }
+                }
+
                 @Override
                 public boolean test(ItemConvertible item) {
                     return Objects.equals(id, Registries.ITEM.getId(item.asItem()));
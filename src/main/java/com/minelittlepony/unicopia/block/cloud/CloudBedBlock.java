@@ -49,7 +49,7 @@ public class CloudBedBlock extends FancyBedBlock implements CloudLike {
 
     @Override
     protected final VoxelShape getOutlineShape(BlockState state, BlockView world, BlockPos pos, ShapeContext context) {
-        if (!baseBlock.canInteract(baseState, world, pos, EquineContext.of(context))) {
+        if (!baseBlock.canInteract(baseState, world, pos, EquineContext.of(context, world))) {
             return VoxelShapes.empty();
         }
         return super.getOutlineShape(state, world, pos, context);
@@ -91,4 +91,9 @@ public class CloudBedBlock extends FancyBedBlock implements CloudLike {
     protected boolean canPathfindThrough(BlockState state, NavigationType type) {
         return baseState.canPathfindThrough(type);
     }
+
+    @Override
+    public boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
+        return baseBlock.canPathfindThrough(baseState, type, context);
+    }
 }
@@ -1,14 +1,19 @@
 package com.minelittlepony.unicopia.block.cloud;
 
+import java.util.Map;
+import java.util.function.Supplier;
+
 import org.jetbrains.annotations.Nullable;
 
+import com.google.common.base.Suppliers;
 import com.minelittlepony.unicopia.EquineContext;
-import com.minelittlepony.unicopia.InteractionManager;
 import com.minelittlepony.unicopia.entity.player.Pony;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 
+import it.unimi.dsi.fastutil.objects.Object2ByteLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.minecraft.block.BedBlock;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
@@ -37,8 +42,29 @@ public class CloudBlock extends Block implements CloudLike {
             BedBlock.createSettingsCodec()
     ).apply(instance, CloudBlock::new));
 
+    private static final ThreadLocal<Object2ByteLinkedOpenHashMap<Block.NeighborGroup>> SIDE_CULLING_CACHE = ThreadLocal.withInitial(() -> {
+        Object2ByteLinkedOpenHashMap<Block.NeighborGroup> map = new Object2ByteLinkedOpenHashMap<>(256, 0.25F) {
+            @Override
+            protected void rehash(int newN) { }
+        };
+        map.defaultReturnValue((byte)127);
+        return map;
+    });
+
     protected final boolean meltable;
 
+    /**
+     * Shapes are cached for every state the first time any of them is needed,
+     * since the dynamic bounds clouds need stop vanilla from doing it for us.
+     */
+    private final Supplier<Map<BlockState, VoxelShape>> shapes = Suppliers.memoize(() -> {
+        Map<BlockState, VoxelShape> shapes = new Reference2ObjectOpenHashMap<>();
+        getStateManager().getStates().forEach(state -> {
+            shapes.put(state, getOutlineShape(state, EmptyBlockView.INSTANCE, BlockPos.ORIGIN, ShapeContext.absent(), EquineContext.ABSENT));
+        });
+        return shapes;
+    });
+
     public CloudBlock(boolean meltable, Settings settings) {
         super(CloudLike.applyCloudProperties(meltable ? settings.ticksRandomly() : settings));
         this.meltable = meltable;
@@ -136,16 +162,15 @@ public class CloudBlock extends Block implements CloudLike {
 
     @Override
     protected final VoxelShape getOutlineShape(BlockState state, BlockView world, BlockPos pos, ShapeContext context) {
-        EquineContext equineContext = EquineContext.of(context);
-        if (!canInteract(state, world, pos, equineContext)) {
+        if (!canInteract(state, world, pos, EquineContext.of(context, world))) {
             return VoxelShapes.empty();
         }
-        return getOutlineShape(state, world, pos, context, equineContext);
+        return shapes.get().get(state);
     }
 
     @Override
     protected final VoxelShape getCullingShape(BlockState state, BlockView world, BlockPos pos) {
-        return getOutlineShape(state, world, pos, ShapeContext.absent(), EquineContext.ABSENT);
+        return shapes.get().get(state);
     }
 
     @Override
@@ -174,16 +199,38 @@ public class CloudBlock extends Block implements CloudLike {
 
     @Override
     protected boolean isSideInvisible(BlockState state, BlockState stateFrom, Direction direction) {
+        // culling shapes only depend on the states, so the answer for a pair of them never changes
+        Block.NeighborGroup key = new Block.NeighborGroup(state, stateFrom, direction);
+        Object2ByteLinkedOpenHashMap<Block.NeighborGroup> cache = SIDE_CULLING_CACHE.get();
+        byte cached = cache.getAndMoveToFirst(key);
+        if (cached != 127) {
+            return cached != 0;
+        }
+
         VoxelShape shape = state.getCullingShape(EmptyBlockView.INSTANCE, BlockPos.ORIGIN);
         VoxelShape shapeFrom = stateFrom.getCullingShape(EmptyBlockView.INSTANCE, BlockPos.ORIGIN);
-        return !shape.isEmpty() && !shapeFrom.isEmpty() && VoxelShapes.isSideCovered(shape, shapeFrom, direction);
+        boolean invisible = !shape.isEmpty() && !shapeFrom.isEmpty() && VoxelShapes.isSideCovered(shape, shapeFrom, direction);
+
+        if (cache.size() == 256) {
+            cache.removeLastByte();
+        }
+        cache.putAndMoveToFirst(key, (byte)(invisible ? 1 : 0));
+        return invisible;
     }
 
     @Override
     protected boolean canPathfindThrough(BlockState state, NavigationType type) {
-        return type != NavigationType.LAND || !InteractionManager.getInstance().getPathingEquineContext().collidesWithClouds();
+        return canPathfindThrough(state, type, EquineContext.ABSENT);
+    }
+
+    @Override
+    public boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
+        return type != NavigationType.LAND || !context.collidesWithClouds();
     }
 
+    /**
+     * Gets the shape of this cloud for a given state. The result is cached per state so must not depend on anything else.
+     */
     protected VoxelShape getOutlineShape(BlockState state, BlockView world, BlockPos pos, ShapeContext context, EquineContext equineContext) {
         return VoxelShapes.fullCube();
     }
@@ -5,7 +5,6 @@ import java.util.Optional;
 import org.jetbrains.annotations.Nullable;
 
 import com.minelittlepony.unicopia.EquineContext;
-import com.minelittlepony.unicopia.InteractionManager;
 import com.minelittlepony.unicopia.block.UBlockEntities;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
@@ -110,7 +109,7 @@ public class CloudChestBlock extends ChestBlock implements CloudLike {
 
     @Override
     protected final VoxelShape getOutlineShape(BlockState state, BlockView world, BlockPos pos, ShapeContext context) {
-        if (!baseBlock.canInteract(baseState, world, pos, EquineContext.of(context))) {
+        if (!baseBlock.canInteract(baseState, world, pos, EquineContext.of(context, world))) {
             return VoxelShapes.empty();
         }
         return super.getOutlineShape(state, world, pos, context);
@@ -150,7 +149,12 @@ public class CloudChestBlock extends ChestBlock implements CloudLike {
 
     @Override
     protected boolean canPathfindThrough(BlockState state, NavigationType type) {
-        return type != NavigationType.LAND || !InteractionManager.getInstance().getPathingEquineContext().collidesWithClouds();
+        return canPathfindThrough(state, type, EquineContext.ABSENT);
+    }
+
+    @Override
+    public boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
+        return type != NavigationType.LAND || !context.collidesWithClouds();
     }
 
     public static class TileData extends ChestBlockEntity {
@@ -3,7 +3,6 @@ package com.minelittlepony.unicopia.block.cloud;
 import org.jetbrains.annotations.Nullable;
 
 import com.minelittlepony.unicopia.EquineContext;
-import com.minelittlepony.unicopia.InteractionManager;
 import com.minelittlepony.unicopia.Race;
 import com.mojang.serialization.MapCodec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
@@ -48,7 +47,7 @@ public class CloudDoorBlock extends DoorBlock implements CloudLike {
 
     @Override
     protected final VoxelShape getOutlineShape(BlockState state, BlockView world, BlockPos pos, ShapeContext context) {
-        if (canPassThrough(state, world, pos, EquineContext.of(context))) {
+        if (canPassThrough(state, world, pos, EquineContext.of(context, world))) {
             return VoxelShapes.empty();
         }
         return super.getOutlineShape(state, world, pos, context);
@@ -98,6 +97,11 @@ public class CloudDoorBlock extends DoorBlock implements CloudLike {
 
     @Override
     protected boolean canPathfindThrough(BlockState state, NavigationType type) {
-        return !InteractionManager.getInstance().getPathingEquineContext().collidesWithClouds() || super.canPathfindThrough(state, type);
+        return canPathfindThrough(state, type, EquineContext.ABSENT);
+    }
+
+    @Override
+    public boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
+        return !context.collidesWithClouds() || super.canPathfindThrough(state, type);
     }
 }
@@ -1,8 +1,12 @@
 package com.minelittlepony.unicopia.block.cloud;
 
+import com.minelittlepony.unicopia.EquineContext;
+
 import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.SpawnGroup;
+import net.minecraft.entity.ai.pathing.NavigationType;
 
 public interface CloudLike {
     static Block.Settings applyCloudProperties(Block.Settings settings) {
@@ -10,4 +14,11 @@ public interface CloudLike {
             return type == EntityType.PHANTOM || type == EntityType.PARROT || type.getSpawnGroup() == SpawnGroup.AMBIENT;
         });
     }
+
+    /**
+     * Checks whether a mob with the given context can find a path through this block.
+     */
+    default boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
+        return state.canPathfindThrough(type);
+    }
 }
@@ -64,7 +64,7 @@ public class CloudStairsBlock extends StairsBlock implements CloudLike {
 
     @Override
     protected VoxelShape getOutlineShape(BlockState state, BlockView world, BlockPos pos, ShapeContext context) {
-        if (!baseBlock.canInteract(state, world, pos, EquineContext.of(context))) {
+        if (!baseBlock.canInteract(state, world, pos, EquineContext.of(context, world))) {
             return VoxelShapes.empty();
         }
         return super.getOutlineShape(state, world, pos, context);
@@ -104,4 +104,9 @@ public class CloudStairsBlock extends StairsBlock implements CloudLike {
     protected boolean canPathfindThrough(BlockState state, NavigationType type) {
         return baseBlock.canPathfindThrough(state, type);
     }
+
+    @Override
+    public boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
+        return baseBlock.canPathfindThrough(state, type, context);
+    }
 }
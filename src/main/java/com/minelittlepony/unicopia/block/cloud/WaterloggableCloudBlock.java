@@ -74,7 +74,7 @@ public class WaterloggableCloudBlock extends PoreousCloudBlock implements Waterl
     }
 
     @Override
-    protected boolean canPathfindThrough(BlockState state, NavigationType type) {
+    public boolean canPathfindThrough(BlockState state, NavigationType type, EquineContext context) {
         return (type == NavigationType.WATER) == state.getFluidState().isIn(FluidTags.WATER);
     }
 }
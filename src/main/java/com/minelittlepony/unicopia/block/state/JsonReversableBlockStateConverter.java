@@ -8,6 +8,7 @@ import org.jetbrains.annotations.Nullable;
 
 import com.google.gson.*;
 
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.JsonHelper;
 import net.minecraft.world.World;
@@ -19,6 +20,13 @@ public class JsonReversableBlockStateConverter implements ReversableBlockStateCo
     @Nullable
     private ReversableBlockStateConverter inverse;
 
+    /**
+     * The index (plus one) of the first entry that matches each block state, by raw state id.
+     * Built the first time this converter is used so the predicates see the current tags.
+     */
+    @Nullable
+    private volatile int[] table;
+
     public JsonReversableBlockStateConverter(JsonElement json) {
         this(new ArrayList<>(), null);
         json.getAsJsonArray().forEach(entry -> {
@@ -33,15 +41,43 @@ public class JsonReversableBlockStateConverter implements ReversableBlockStateCo
 
     @Override
     public boolean canConvert(@Nullable BlockState state) {
-        return entries.stream().anyMatch(entry -> entry.canConvert(state));
+        return state != null && getEntryIndex(state) >= 0;
     }
 
     @Override
     public @NotNull BlockState getConverted(World world, @NotNull BlockState state) {
-        return entries.stream().filter(entry -> entry.canConvert(state))
-                .findFirst()
-                .map(entry -> entry.getConverted(world, state))
-                .orElse(state);
+        int index = getEntryIndex(state);
+        return index < 0 ? state : entries.get(index).getConverted(world, state);
+    }
+
+    private int getEntryIndex(BlockState state) {
+        int[] table = getTable();
+        int id = Block.getRawIdFromState(state);
+        if (id >= 0 && id < table.length) {
+            return table[id] - 1;
+        }
+        return findEntryIndex(state);
+    }
+
+    private int findEntryIndex(BlockState state) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).canConvert(state)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int[] getTable() {
+        int[] table = this.table;
+        if (table == null) {
+            table = new int[Block.STATE_IDS.size()];
+            for (int id = 0; id < table.length; id++) {
+                table[id] = findEntryIndex(Block.STATE_IDS.get(id)) + 1;
+            }
+            this.table = table;
+        }
+        return table;
     }
 
     @Override
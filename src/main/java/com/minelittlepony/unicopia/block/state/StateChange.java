@@ -3,9 +3,11 @@ package com.minelittlepony.unicopia.block.state;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.jetbrains.annotations.NotNull;
 
+import com.google.common.base.Suppliers;
 import com.google.gson.JsonObject;
 import com.minelittlepony.unicopia.Unicopia;
 
@@ -24,6 +26,7 @@ public abstract class StateChange {
             final String sstate = JsonHelper.getString(json, "state");
             final Identifier id = Identifier.of(sstate);
             final float chance = JsonHelper.getFloat(json, "chance", -1);
+            final Supplier<Optional<BlockState>> target = Suppliers.memoize(() -> Registries.BLOCK.getOrEmpty(id).map(Block::getDefaultState));
 
             return new StateChange() {
                 @Override
@@ -48,9 +51,8 @@ public abstract class StateChange {
                     if (chance > 0 && world.random.nextFloat() > chance) {
                         return state;
                     }
-                    return Registries.BLOCK.getOrEmpty(id).map(Block::getDefaultState)
-                            .map(newState -> StateUtil.copyState(state, newState))
-                            .orElse(state);
+                    BlockState newState = target.get().orElse(null);
+                    return newState == null ? state : StateUtil.copyState(state, newState);
                 }
             };
         });
@@ -106,12 +106,14 @@ public class StateMapLoader extends JsonDataLoader implements IdentifiableResour
 
         @Override
         public boolean canConvert(@Nullable BlockState state) {
-            return get().filter(map -> map.canConvert(state)).isPresent();
+            T map = get().orElse(null);
+            return map != null && map.canConvert(state);
         }
 
         @Override
         public @NotNull BlockState getConverted(World world, @NotNull BlockState state) {
-            return get().map(map -> map.getConverted(world, state)).orElse(state);
+            T map = get().orElse(null);
+            return map == null ? state : map.getConverted(world, state);
         }
 
         @SuppressWarnings("unchecked")
@@ -11,10 +11,8 @@ import com.mojang.serialization.MapCodec;
 
 import net.minecraft.block.*;
 import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.BlockSoundGroup;
 import net.minecraft.util.math.*;
-import net.minecraft.util.math.random.Random;
 import net.minecraft.world.*;
 
 public class BaseZapAppleLeavesBlock extends LeavesBlock implements TintedBlock, ZapStagedBlock, ElectrifiedBlock {
@@ -50,12 +48,8 @@ public class BaseZapAppleLeavesBlock extends LeavesBlock implements TintedBlock,
     }
 
     @Override
-    public void scheduledTick(BlockState state, ServerWorld world, BlockPos pos, Random random) {
-        super.scheduledTick(state, world, pos, random);
-        if (state.get(PERSISTENT)) {
-            return;
-        }
-        tryAdvanceStage(state, world, pos, random);
+    public boolean isStaged(BlockState state) {
+        return !state.get(PERSISTENT);
     }
 
     @Override
@@ -5,9 +5,7 @@ import com.minelittlepony.unicopia.server.world.ZapAppleStageStore.Stage;
 import com.mojang.serialization.MapCodec;
 
 import net.minecraft.block.*;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.*;
-import net.minecraft.util.math.random.Random;
 import net.minecraft.world.World;
 
 public class ZapAppleLeavesPlaceholderBlock extends AirBlock implements ZapStagedBlock {
@@ -32,11 +30,4 @@ public class ZapAppleLeavesPlaceholderBlock extends AirBlock implements ZapStage
     public void onBlockAdded(BlockState state, World world, BlockPos pos, BlockState oldState, boolean notify) {
         updateStage(state, world, pos);
     }
-
-    @Deprecated
-    @Override
-    public void scheduledTick(BlockState state, ServerWorld world, BlockPos pos, Random random) {
-        super.scheduledTick(state, world, pos, random);
-        tryAdvanceStage(state, world, pos, random);
-    }
 }
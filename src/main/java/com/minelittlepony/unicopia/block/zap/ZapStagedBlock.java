@@ -18,26 +18,31 @@ public interface ZapStagedBlock {
         if (!(world instanceof ServerWorld sw)) {
             return;
         }
-        ZapAppleStageStore.Stage currentStage = ZapAppleStageStore.get(sw).getStage();
+        ZapAppleStageStore store = ZapAppleStageStore.get(sw);
+        ZapAppleStageStore.Stage currentStage = store.getStage();
         if (currentStage != getStage(state)) {
-            state = getState(currentStage);
-            world.setBlockState(pos, state);
+            world.setBlockState(pos, getState(currentStage));
         }
-        world.scheduleBlockTick(pos, state.getBlock(), 1);
+        store.trackLeaves(pos);
+    }
+
+    /**
+     * Whether this block should follow the zap apple stages. Blocks that don't are not tracked by the stage store.
+     */
+    default boolean isStaged(BlockState state) {
+        return true;
     }
 
-    default void tryAdvanceStage(BlockState state, ServerWorld world, BlockPos pos, Random random) {
-        ZapAppleStageStore store = ZapAppleStageStore.get(world);
+    /**
+     * Moves this block to the current stage. Called by the stage store once the block's transition comes due.
+     */
+    default void advanceStage(ZapAppleStageStore store, BlockState state, ServerWorld world, BlockPos pos, Random random) {
         ZapAppleStageStore.Stage currentStage = store.getStage();
-        if (!world.isDay() && currentStage != getStage(state)) {
-            int transitionRate = getTransitionRate(currentStage);
-            if (transitionRate == 0 || random.nextInt(transitionRate) == 0) {
-                state = getState(currentStage);
-                world.setBlockState(pos, state);
-                onStageChanged(store, currentStage, world, state, pos, random);
-            }
+        if (currentStage != getStage(state)) {
+            state = getState(currentStage);
+            world.setBlockState(pos, state);
+            onStageChanged(store, currentStage, world, state, pos, random);
         }
-        world.scheduleBlockTick(pos, state.getBlock(), 1);
     }
 
     default int getTransitionRate(ZapAppleStageStore.Stage stage) {
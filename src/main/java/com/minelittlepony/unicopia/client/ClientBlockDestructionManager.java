@@ -1,19 +1,36 @@
 package com.minelittlepony.unicopia.client;
 
 import java.util.SortedSet;
-import com.google.common.collect.Sets;
+import java.util.TreeSet;
+
+import org.jetbrains.annotations.Nullable;
+
 import com.minelittlepony.unicopia.server.world.BlockDestructionManager;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
 import net.minecraft.entity.player.BlockBreakingInfo;
 import net.minecraft.util.math.BlockPos;
 
+/**
+ * Merges Unicopia's block destruction with vanilla's block breaking progress for rendering.
+ * <p>
+ * The merged map is kept up to date incrementally. A position is only recomputed when
+ * our destruction for it or vanilla's breaking progress there changes. Positions that
+ * only vanilla knows about share vanilla's own sets.
+ */
 public class ClientBlockDestructionManager {
 
     private final Long2ObjectMap<Destruction> destructions = new Long2ObjectOpenHashMap<>();
 
     private final Long2ObjectMap<SortedSet<BlockBreakingInfo>> combined = new Long2ObjectOpenHashMap<>();
+    private final LongSet changedPositions = new LongOpenHashSet();
+    private boolean combinedValid;
+
+    @Nullable
+    private Long2ObjectMap<SortedSet<BlockBreakingInfo>> vanilla;
 
     private final Object locker = new Object();
 
@@ -24,34 +41,101 @@ public class ClientBlockDestructionManager {
             } else {
                 destructions.computeIfAbsent(pos, p -> new Destruction(pos)).set(amount);
             }
+            refresh(pos);
+        }
+    }
+
+    /**
+     * Called when vanilla's breaking progress for a position is added, changed or removed.
+     */
+    public void onVanillaProgressChanged(long pos) {
+        synchronized (locker) {
+            if (combinedValid) {
+                refresh(pos);
+            }
+        }
+    }
+
+    /**
+     * Forces the merged view to be rebuilt from scratch, eg. when vanilla discards all of its progress.
+     */
+    public void invalidate() {
+        synchronized (locker) {
+            combinedValid = false;
         }
     }
 
     public void tick(Long2ObjectMap<SortedSet<BlockBreakingInfo>> vanilla) {
         synchronized (locker) {
-            destructions.long2ObjectEntrySet().removeIf(entry -> entry.getValue().tick());
+            this.vanilla = vanilla;
+            destructions.long2ObjectEntrySet().removeIf(entry -> {
+                int stage = entry.getValue().info.getStage();
+                boolean removed = entry.getValue().tick();
+                if (removed || stage != entry.getValue().info.getStage()) {
+                    changedPositions.add(entry.getLongKey());
+                }
+                return removed;
+            });
+            changedPositions.forEach(this::refresh);
+            changedPositions.clear();
+
+            if (!combinedValid && !destructions.isEmpty()) {
+                rebuild();
+            }
+        }
+    }
 
+    private void refresh(long pos) {
+        if (destructions.isEmpty()) {
+            // vanilla's map is used directly while we have nothing to add
             combined.clear();
+            combinedValid = false;
+        } else if (vanilla != null) {
+            if (combinedValid) {
+                update(pos);
+            } else {
+                rebuild();
+            }
+        }
+    }
 
-            if (!destructions.isEmpty()) {
-                destructions.forEach((pos, value) -> {
-                    combined.computeIfAbsent(pos.longValue(), p -> Sets.newTreeSet()).add(value.info);
-                });
-                vanilla.forEach((pos, value) -> {
-                    combined.computeIfAbsent(pos.longValue(), p -> Sets.newTreeSet()).addAll(value);
-                });
+    private void rebuild() {
+        combined.clear();
+        combined.putAll(vanilla);
+        destructions.keySet().forEach(this::update);
+        combinedValid = true;
+    }
+
+    private void update(long pos) {
+        SortedSet<BlockBreakingInfo> vanillaInfos = vanilla.get(pos);
+        Destruction destruction = destructions.get(pos);
+
+        if (destruction == null) {
+            if (vanillaInfos == null) {
+                combined.remove(pos);
+            } else {
+                combined.put(pos, vanillaInfos);
             }
+            return;
+        }
+
+        destruction.merged.clear();
+        destruction.merged.add(destruction.info);
+        if (vanillaInfos != null) {
+            destruction.merged.addAll(vanillaInfos);
         }
+        combined.put(pos, destruction.merged);
     }
 
     public Long2ObjectMap<SortedSet<BlockBreakingInfo>> getCombinedDestructions(Long2ObjectMap<SortedSet<BlockBreakingInfo>> vanilla) {
-        return destructions.isEmpty() ? vanilla : combined;
+        return destructions.isEmpty() || !combinedValid ? vanilla : combined;
     }
 
     private class Destruction {
         int age = 50;
 
-        BlockBreakingInfo info;
+        final BlockBreakingInfo info;
+        final SortedSet<BlockBreakingInfo> merged = new TreeSet<>();
 
         Destruction(long pos) {
             this.info = new BlockBreakingInfo(0, BlockPos.fromLong(pos));
@@ -15,6 +15,7 @@ public interface DynamicLightSource {
     static final class LightEmitter<T extends Entity & DynamicLightSource> {
         @Nullable
         private BlockPos lastPos;
+        private int lastLight;
 
         private final T entity;
 
@@ -32,30 +33,23 @@ public interface DynamicLightSource {
             int light = entity.getLightLevel();
 
             if (light <= 0) {
+                remove();
                 return;
             }
 
             BlockPos currentPos = entity.getBlockPos();
 
-            if (!currentPos.equals(lastPos) && entity.getWorld().isChunkLoaded(currentPos)) {
-                LightSources.get(entity.getWorld()).addLightSource(entity);
-
-                try {
-                    if (lastPos != null) {
-                        entity.getWorld().getLightingProvider().checkBlock(lastPos);
-                        entity.getWorld().getLightingProvider().checkBlock(currentPos);
-                    }
-                    lastPos = currentPos;
-                } catch (Exception ignored) { }
+            if ((!currentPos.equals(lastPos) || light != lastLight) && entity.getWorld().isChunkLoaded(currentPos)) {
+                LightSources.get(entity.getWorld()).setLightSource(entity, currentPos, light);
+                lastPos = currentPos;
+                lastLight = light;
             }
         }
 
         public void remove() {
-            LightSources.get(entity.getWorld()).removeLightSource(entity);
             if (lastPos != null) {
-                try {
-                    entity.getWorld().getLightingProvider().checkBlock(lastPos);
-                } catch (Exception ignored) {}
+                LightSources.get(entity.getWorld()).removeLightSource(entity);
+                lastPos = null;
             }
         }
     }
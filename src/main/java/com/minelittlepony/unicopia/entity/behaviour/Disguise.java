@@ -8,6 +8,7 @@ import com.minelittlepony.unicopia.FlightType;
 import com.minelittlepony.unicopia.Owned;
 import com.minelittlepony.unicopia.ability.magic.Caster;
 import com.minelittlepony.unicopia.entity.Living;
+import com.minelittlepony.unicopia.entity.collision.CollidableEntityIndex;
 import com.minelittlepony.unicopia.entity.duck.LivingEntityDuck;
 import com.minelittlepony.unicopia.entity.duck.RotatedView;
 import com.minelittlepony.unicopia.entity.player.PlayerDimensions;
@@ -78,6 +79,8 @@ public interface Disguise extends FlightType.Provider, PlayerDimensions.Provider
             return false;
         }
 
+        CollidableEntityIndex.of(owner.getWorld()).update(owner);
+
         entity.noClip = true;
 
         if (entity instanceof MobEntity mob) {
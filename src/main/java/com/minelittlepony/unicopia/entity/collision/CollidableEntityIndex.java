@@ -0,0 +1,173 @@
+package com.minelittlepony.unicopia.entity.collision;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.google.common.base.Suppliers;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.World;
+
+/**
+ * Tracks the entities in a world that add their own shapes to collision checks (disguised casters, air balloons, etc.),
+ * bucketed by the chunk section they're in so collision checks only have to look at those nearby.
+ * <p>
+ * Entities renew their place in the index as they tick, and stay in it until they're removed from the world
+ * (which includes being unloaded). Entities that stop contributing shapes can linger until then, so whoever
+ * reads the index still has to ask each entity for its shapes.
+ */
+public class CollidableEntityIndex {
+    /**
+     * How far from an entity's position the shapes it contributes are allowed to reach.
+     */
+    public static final int REACH = 50;
+
+    private static final int PRUNE_INTERVAL = 20;
+
+    private final World world;
+
+    private final Reference2ObjectMap<Entity, Entry> entries = new Reference2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<List<Entry>> sections = new Long2ObjectOpenHashMap<>();
+
+    private long lastPruneTime;
+
+    public static Supplier<CollidableEntityIndex> create(World world) {
+        return Suppliers.memoize(() -> new CollidableEntityIndex(world));
+    }
+
+    public static CollidableEntityIndex of(World world) {
+        return ((CollidableEntityIndex.Source)world).getCollidableEntityIndex();
+    }
+
+    private CollidableEntityIndex(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Adds an entity to the index, or moves it to the section it is now in.
+     */
+    public void update(Entity entity) {
+        pruneIfDue();
+
+        Entry entry = entries.computeIfAbsent(entity, Entry::new);
+
+        long section = ChunkSectionPos.toLong(entity.getBlockPos());
+        if (entry.section != section || !entry.indexed) {
+            if (entry.indexed) {
+                removeFromSection(entry);
+            }
+            entry.section = section;
+            entry.indexed = true;
+            sections.computeIfAbsent(section, s -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /**
+     * Passes every indexed entity whose shapes could reach into the given box to the consumer.
+     */
+    public void forEachNear(@Nullable Entity except, Box box, Consumer<Entity> consumer) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        pruneIfDue();
+
+        int minX = ChunkSectionPos.getSectionCoord(MathHelper.floor(box.minX) - REACH);
+        int minY = ChunkSectionPos.getSectionCoord(MathHelper.floor(box.minY) - REACH);
+        int minZ = ChunkSectionPos.getSectionCoord(MathHelper.floor(box.minZ) - REACH);
+        int maxX = ChunkSectionPos.getSectionCoord(MathHelper.floor(box.maxX) + REACH);
+        int maxY = ChunkSectionPos.getSectionCoord(MathHelper.floor(box.maxY) + REACH);
+        int maxZ = ChunkSectionPos.getSectionCoord(MathHelper.floor(box.maxZ) + REACH);
+
+        long span = (long)(maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+
+        if (span > sections.size()) {
+            // fewer occupied sections than there are sections in range, so check the occupied ones
+            for (Long2ObjectMap.Entry<List<Entry>> section : sections.long2ObjectEntrySet()) {
+                long pos = section.getLongKey();
+                int x = ChunkSectionPos.unpackX(pos);
+                int y = ChunkSectionPos.unpackY(pos);
+                int z = ChunkSectionPos.unpackZ(pos);
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                    accept(section.getValue(), except, consumer);
+                }
+            }
+            return;
+        }
+
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    List<Entry> section = sections.get(ChunkSectionPos.asLong(x, y, z));
+                    if (section != null) {
+                        accept(section, except, consumer);
+                    }
+                }
+            }
+        }
+    }
+
+    private void accept(List<Entry> section, @Nullable Entity except, Consumer<Entity> consumer) {
+        for (int i = 0; i < section.size(); i++) {
+            Entry entry = section.get(i);
+            if (entry.entity != except && !entry.isStale()) {
+                consumer.accept(entry.entity);
+            }
+        }
+    }
+
+    private void pruneIfDue() {
+        long time = world.getTime();
+        // the clock is only used to space out pruning, so it doesn't matter if it jumps
+        if (Math.abs(time - lastPruneTime) > PRUNE_INTERVAL) {
+            lastPruneTime = time;
+            prune();
+        }
+    }
+
+    private void prune() {
+        entries.values().removeIf(entry -> {
+            if (entry.isStale()) {
+                removeFromSection(entry);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void removeFromSection(Entry entry) {
+        List<Entry> section = sections.get(entry.section);
+        if (section != null && section.remove(entry) && section.isEmpty()) {
+            sections.remove(entry.section);
+        }
+    }
+
+    private static final class Entry {
+        private final Entity entity;
+        private long section;
+        private boolean indexed;
+
+        Entry(Entity entity) {
+            this.entity = entity;
+        }
+
+        boolean isStale() {
+            return entity.isRemoved();
+        }
+    }
+
+    public interface Source {
+        CollidableEntityIndex getCollidableEntityIndex();
+    }
+}
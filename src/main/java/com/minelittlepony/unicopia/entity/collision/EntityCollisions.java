@@ -43,14 +43,16 @@ public class EntityCollisions {
     public static List<VoxelShape> getColissonShapes(@Nullable Entity entity, EntityView world, Box box) {
         ShapeContext ctx = entity == null ? ShapeContext.absent() : ShapeContext.of(entity);
         return collectCollisionBoxes(box, collector -> {
-            world.getOtherEntities(entity, box.expand(50), e -> {
+            if (!(world instanceof CollidableEntityIndex.Source source)) {
+                return;
+            }
+            source.getCollidableEntityIndex().forEachNear(entity, box, e -> {
                 Caster.of(e).flatMap(c -> c.getSpellSlot().get(SpellPredicate.IS_DISGUISE)).ifPresent(p -> {
                     p.getDisguise().getCollissionShapes(ctx, collector);
                 });
                 if (e instanceof ComplexCollidable collidable) {
                     collidable.getCollissionShapes(ctx, collector);
                 }
-                return false;
             });
         });
     }
@@ -66,6 +68,10 @@ public class EntityCollisions {
         return shapes;
     }
 
+    /**
+     * An entity that adds its own shapes to collision checks.
+     * Entities implementing this must also keep themselves in the world's {@link CollidableEntityIndex}.
+     */
     public interface ComplexCollidable {
         void getCollissionShapes(ShapeContext context, Consumer<VoxelShape> output);
     }
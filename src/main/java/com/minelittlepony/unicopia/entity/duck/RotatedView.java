@@ -1,28 +1,22 @@
 package com.minelittlepony.unicopia.entity.duck;
 
-import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.util.math.BlockPos;
 
 public interface RotatedView {
 
-    Stack<Integer> getRotations();
-
-    boolean hasTransform();
+    Rotations getRotations();
 
     void setMirrorEntityStatuses(boolean enable);
 
     default void pushRotation(int y) {
-        getRotations().add(y);
+        getRotations().push(y);
     }
 
     default void popRotation() {
-        Stack<Integer> rotations = getRotations();
-        synchronized (rotations) {
-            if (!rotations.isEmpty()) {
-                rotations.pop();
-            }
-        }
+        getRotations().pop();
     }
 
     default BlockPos applyRotation(BlockPos pos) {
@@ -34,14 +28,79 @@ public interface RotatedView {
     }
 
     default int applyRotation(int y) {
-        Stack<Integer> rotations = getRotations();
-        synchronized (rotations) {
-            if (!hasTransform() || rotations.isEmpty()) {
+        return getRotations().apply(y);
+    }
+
+    /**
+     * The stack of rotations applied to a world's block access.
+     * <p>
+     * Rotations only apply on the thread that pushed them, so chunk access from other threads (worldgen, lighting)
+     * is never rotated and never has to wait on the thread that is. While no thread has a rotation active
+     * every call comes down to reading a single counter.
+     */
+    final class Rotations {
+        private final AtomicInteger activeThreads = new AtomicInteger();
+        private final ThreadLocal<Frame> frames = ThreadLocal.withInitial(Frame::new);
+
+        public void push(int y) {
+            Frame frame = frames.get();
+            if (frame.stack.isEmpty()) {
+                frame.depth = 0;
+                activeThreads.incrementAndGet();
+            }
+            frame.stack.push(y);
+        }
+
+        public void pop() {
+            if (activeThreads.get() == 0) {
+                return;
+            }
+            Frame frame = frames.get();
+            if (!frame.stack.isEmpty()) {
+                frame.stack.popInt();
+                if (frame.stack.isEmpty()) {
+                    frame.depth = 0;
+                    activeThreads.decrementAndGet();
+                }
+            }
+        }
+
+        public int apply(int y) {
+            if (activeThreads.get() == 0) {
+                return y;
+            }
+            Frame frame = frames.get();
+            if (frame.stack.isEmpty() || frame.depth > 0) {
                 return y;
             }
+            return (frame.stack.topInt() * 2) - y;
+        }
 
-            return (rotations.peek() * 2) - y;
+        /**
+         * Marks the start of a block change on the current thread. Anything the change does to the world
+         * in turn happens in the already rotated space so is left alone.
+         */
+        public void enterBlockChange() {
+            if (activeThreads.get() != 0) {
+                Frame frame = frames.get();
+                if (!frame.stack.isEmpty()) {
+                    frame.depth++;
+                }
+            }
         }
-    }
 
+        public void exitBlockChange() {
+            if (activeThreads.get() != 0) {
+                Frame frame = frames.get();
+                if (!frame.stack.isEmpty()) {
+                    frame.depth = Math.max(0, frame.depth - 1);
+                }
+            }
+        }
+
+        private static final class Frame {
+            private final IntArrayList stack = new IntArrayList();
+            private int depth;
+        }
+    }
 }
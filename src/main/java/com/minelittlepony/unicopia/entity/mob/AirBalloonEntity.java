@@ -54,6 +54,7 @@ import com.minelittlepony.unicopia.USounds;
 import com.minelittlepony.unicopia.advancement.UCriteria;
 import com.minelittlepony.unicopia.entity.Living;
 import com.minelittlepony.unicopia.entity.MagicImmune;
+import com.minelittlepony.unicopia.entity.collision.CollidableEntityIndex;
 import com.minelittlepony.unicopia.entity.collision.EntityCollisions;
 import com.minelittlepony.unicopia.entity.collision.MultiBoundingBoxEntity;
 import com.minelittlepony.unicopia.entity.collision.MultiBox;
@@ -203,6 +204,7 @@ public class AirBalloonEntity extends MobEntity implements EntityCollisions.Comp
 
     @Override
     public void tick() {
+        CollidableEntityIndex.of(getWorld()).update(this);
         setAir(getMaxAir());
         int boostTicks = getBoostTicks();
 
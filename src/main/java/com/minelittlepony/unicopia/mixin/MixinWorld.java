@@ -9,18 +9,25 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import com.minelittlepony.unicopia.ability.data.tree.TreeCache;
+import com.minelittlepony.unicopia.entity.collision.CollidableEntityIndex;
 import com.minelittlepony.unicopia.entity.duck.RotatedView;
+import com.minelittlepony.unicopia.server.world.AirflowField;
 import com.minelittlepony.unicopia.server.world.BlockDestructionManager;
 import com.minelittlepony.unicopia.server.world.WeatherAccess;
 
+import net.minecraft.block.BlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldAccess;
 
 @Mixin(World.class)
-abstract class MixinWorld implements WorldAccess, BlockDestructionManager.Source, RotatedView, WeatherAccess {
+abstract class MixinWorld implements WorldAccess, BlockDestructionManager.Source, AirflowField.Source, CollidableEntityIndex.Source, TreeCache.Source, RotatedView, WeatherAccess {
     private final Supplier<BlockDestructionManager> destructions = BlockDestructionManager.create((World)(Object)this);
+    private final Supplier<AirflowField> airflowField = AirflowField.create((World)(Object)this);
+    private final Supplier<CollidableEntityIndex> collidableEntities = CollidableEntityIndex.create((World)(Object)this);
+    private final Supplier<TreeCache> trees = TreeCache.create((World)(Object)this);
 
     @Nullable
     private Float rainGradientOverride;
@@ -39,6 +46,27 @@ abstract class MixinWorld implements WorldAccess, BlockDestructionManager.Source
         return destructions.get();
     }
 
+    @Override
+    public AirflowField getAirflowField() {
+        return airflowField.get();
+    }
+
+    @Override
+    public CollidableEntityIndex getCollidableEntityIndex() {
+        return collidableEntities.get();
+    }
+
+    @Override
+    public TreeCache getTreeCache() {
+        return trees.get();
+    }
+
+    @Inject(method = "onBlockChanged", at = @At("HEAD"))
+    private void onOnBlockChanged(BlockPos pos, BlockState oldState, BlockState newState, CallbackInfo info) {
+        getAirflowField().onBlockChanged(pos);
+        getTreeCache().onBlockChanged(pos);
+    }
+
     @Override
     public void setWeatherOverride(Float rain, Float thunder) {
         rainGradientOverride = rain;
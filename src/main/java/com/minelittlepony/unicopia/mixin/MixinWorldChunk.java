@@ -0,0 +1,35 @@
+package com.minelittlepony.unicopia.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import com.minelittlepony.unicopia.server.world.CloudHeightmap;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+@Mixin(WorldChunk.class)
+abstract class MixinWorldChunk implements CloudHeightmap.Source {
+    private final CloudHeightmap cloudHeightmap = new CloudHeightmap((WorldChunk)(Object)this);
+
+    @Override
+    public CloudHeightmap getCloudHeightmap() {
+        return cloudHeightmap;
+    }
+
+    @Inject(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Z)Lnet/minecraft/block/BlockState;", at = @At("RETURN"))
+    private void onSetBlockState(BlockPos pos, BlockState state, boolean moved, CallbackInfoReturnable<BlockState> info) {
+        if (info.getReturnValue() != null) {
+            cloudHeightmap.onBlockChanged(pos, state);
+        }
+    }
+
+    @Inject(method = "loadFromPacket", at = @At("RETURN"))
+    private void onLoadFromPacket(CallbackInfo info) {
+        cloudHeightmap.invalidate();
+    }
+}
@@ -65,6 +65,21 @@ abstract class MixinWorldRenderer implements SynchronousResourceReloader, AutoCl
         destructions.tick(blockBreakingProgressions);
     }
 
+    @Inject(method = "setBlockBreakingInfo", at = @At("RETURN"))
+    private void onSetBlockBreakingInfo(int entityId, BlockPos pos, int stage, CallbackInfo info) {
+        destructions.onVanillaProgressChanged(pos.asLong());
+    }
+
+    @Inject(method = "removeBlockBreakingInfo", at = @At("RETURN"))
+    private void onRemoveBlockBreakingInfo(BlockBreakingInfo breakingInfo, CallbackInfo info) {
+        destructions.onVanillaProgressChanged(breakingInfo.getPos().asLong());
+    }
+
+    @Inject(method = "setWorld", at = @At("RETURN"))
+    private void onSetWorld(@Nullable ClientWorld world, CallbackInfo info) {
+        destructions.invalidate();
+    }
+
     @Inject(method = "renderSky", at = @At(
         value = "INVOKE",
         target = "net/minecraft/client/world/ClientWorld.getSkyAngle(F)F",
@@ -0,0 +1,25 @@
+package com.minelittlepony.unicopia.mixin.server;
+
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+
+import com.minelittlepony.unicopia.EquineContext;
+
+import net.minecraft.world.chunk.ChunkCache;
+
+@Mixin(ChunkCache.class)
+abstract class MixinChunkCache implements EquineContext.PathingView {
+    @Nullable
+    private EquineContext equineContext;
+
+    @Override
+    public void setEquineContext(@Nullable EquineContext context) {
+        equineContext = context;
+    }
+
+    @Override
+    @Nullable
+    public EquineContext get() {
+        return equineContext;
+    }
+}
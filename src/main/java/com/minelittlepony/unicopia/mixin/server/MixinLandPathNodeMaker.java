@@ -0,0 +1,28 @@
+package com.minelittlepony.unicopia.mixin.server;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+import com.minelittlepony.unicopia.EquineContext;
+import com.minelittlepony.unicopia.block.cloud.CloudLike;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.ai.pathing.LandPathNodeMaker;
+import net.minecraft.entity.ai.pathing.NavigationType;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.BlockView;
+
+@Mixin(LandPathNodeMaker.class)
+abstract class MixinLandPathNodeMaker {
+    @Redirect(method = "getCommonNodeType", at = @At(
+            value = "INVOKE",
+            target = "Lnet/minecraft/block/BlockState;canPathfindThrough(Lnet/minecraft/entity/ai/pathing/NavigationType;)Z"
+    ))
+    private static boolean onCanPathfindThrough(BlockState state, NavigationType type, BlockView world, BlockPos pos) {
+        if (state.getBlock() instanceof CloudLike cloud) {
+            return cloud.canPathfindThrough(state, type, EquineContext.of(world));
+        }
+        return state.canPathfindThrough(type);
+    }
+}
@@ -9,7 +9,10 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.ModifyConstant;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import com.minelittlepony.unicopia.ability.data.tree.TreeCache;
+import com.minelittlepony.unicopia.server.world.AirflowField;
 import com.minelittlepony.unicopia.server.world.BlockDestructionManager;
+import com.minelittlepony.unicopia.server.world.Ether;
 import com.minelittlepony.unicopia.server.world.NocturnalSleepManager;
 
 import net.minecraft.block.BlockState;
@@ -25,6 +28,11 @@ abstract class MixinServerWorld implements StructureWorldAccess, NocturnalSleepM
     @Inject(method = "onBlockChanged", at = @At("HEAD"))
     private void onOnBlockChanged(BlockPos pos, BlockState oldState, BlockState newState, CallbackInfo info) {
         ((BlockDestructionManager.Source)this).getDestructionManager().onBlockChanged(pos, oldState, newState);
+        ((AirflowField.Source)this).getAirflowField().onBlockChanged(pos);
+        ((TreeCache.Source)this).getTreeCache().onBlockChanged(pos);
+        if (!newState.getFluidState().isEmpty()) {
+            Ether.get((ServerWorld)(Object)this).onFluidPlaced(pos);
+        }
     }
 
     @ModifyConstant(method = "sendSleepingStatus()V", constant = @Constant(stringValue = "sleep.skipping_night"))
@@ -1,17 +1,34 @@
 package com.minelittlepony.unicopia.network;
 
 import io.netty.buffer.ByteBuf;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.network.codec.PacketCodec;
-import net.minecraft.network.codec.PacketCodecs;
+import net.minecraft.network.encoding.VarInts;
+import net.minecraft.network.encoding.VarLongs;
 
 /**
  * Sent by the server to update block destruction progress on the client.
+ * <p>
+ * Positions and amounts are held in parallel primitive arrays so neither side has to box them.
  */
-public record MsgBlockDestruction(Long2ObjectMap<Float> destructions) {
-    public static final PacketCodec<ByteBuf, MsgBlockDestruction> PACKET_CODEC = PacketCodec.tuple(
-            PacketCodecs.map(Long2ObjectOpenHashMap::new, PacketCodecs.VAR_LONG, PacketCodecs.FLOAT), MsgBlockDestruction::destructions,
-            MsgBlockDestruction::new
-    );
+public record MsgBlockDestruction(long[] positions, float[] amounts) {
+    public static final PacketCodec<ByteBuf, MsgBlockDestruction> PACKET_CODEC = PacketCodec.of(MsgBlockDestruction::write, MsgBlockDestruction::read);
+
+    private static MsgBlockDestruction read(ByteBuf buffer) {
+        int size = VarInts.read(buffer);
+        long[] positions = new long[size];
+        float[] amounts = new float[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = VarLongs.read(buffer);
+            amounts[i] = buffer.readFloat();
+        }
+        return new MsgBlockDestruction(positions, amounts);
+    }
+
+    private void write(ByteBuf buffer) {
+        VarInts.write(buffer, positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            VarLongs.write(buffer, positions[i]);
+            buffer.writeFloat(amounts[i]);
+        }
+    }
 }
@@ -48,9 +48,9 @@ public class ClientNetworkHandlerImpl {
     private void handleBlockDestruction(PlayerEntity sender, MsgBlockDestruction packet) {
         ClientBlockDestructionManager destr = ((ClientBlockDestructionManager.Source)client.worldRenderer).getDestructionManager();
 
-        packet.destructions().forEach((i, d) -> {
-            destr.setBlockDestruction(i, d);
-        });
+        for (int i = 0; i < packet.positions().length; i++) {
+            destr.setBlockDestruction(packet.positions()[i], packet.amounts()[i]);
+        }
     }
 
     private void handleCancelAbility(PlayerEntity sender, MsgCancelPlayerAbility packet) {
@@ -0,0 +1,136 @@
+package com.minelittlepony.unicopia.server.world;
+
+import java.util.function.Supplier;
+
+import com.google.common.base.Suppliers;
+import com.minelittlepony.unicopia.util.MeteorlogicalUtil;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.registry.tag.FluidTags;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+
+/**
+ * Column-cached samples of the terrain used to compute airflow.
+ * <p>
+ * Ground height comes straight from the chunk's surface and cloud heightmaps, and the surface temperature
+ * of each column is sampled once and reused until a block in that column changes.
+ */
+public class AirflowField {
+    private static final int MAX_CACHED_COLUMNS = 16384;
+
+    private final World world;
+
+    private final Long2ObjectMap<Sample> samples = new Long2ObjectOpenHashMap<>();
+
+    public static Supplier<AirflowField> create(World world) {
+        return Suppliers.memoize(() -> new AirflowField(world));
+    }
+
+    public static AirflowField of(World world) {
+        return ((AirflowField.Source)world).getAirflowField();
+    }
+
+    private AirflowField(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Gets the height of the given position above the first solid block beneath it
+     * and moves the position down onto that block.
+     */
+    public int getLocalAltitude(BlockPos.Mutable pos) {
+        int y = pos.getY();
+        int surface = ((WeatherAccess)world).getCeilingY(pos.getX(), pos.getZ());
+
+        if (y > surface) {
+            pos.setY(surface);
+            return y - surface;
+        }
+
+        // below the surface (in a cave or under an overhang) there is no shortcut
+        if (!world.isAir(pos)) {
+            return 0;
+        }
+        do {
+            pos.move(Direction.DOWN);
+        } while (world.isAir(pos) && world.isInBuildLimit(pos));
+        return y - pos.getY();
+    }
+
+    /**
+     * Gets the temperature of the surface block at the given position.
+     */
+    public double getSurfaceTemperature(BlockPos pos) {
+        long column = ChunkPos.toLong(pos.getX(), pos.getZ());
+        Sample sample = samples.get(column);
+
+        if (sample == null || sample.groundY() != pos.getY()) {
+            if (samples.size() >= MAX_CACHED_COLUMNS) {
+                samples.clear();
+            }
+            sample = Sample.of(world, pos);
+            samples.put(column, sample);
+        }
+
+        return sample.sunScaled() ? sample.temperature() * MeteorlogicalUtil.getSunIntensity(world) : sample.temperature();
+    }
+
+    public void onBlockChanged(BlockPos pos) {
+        if (!samples.isEmpty()) {
+            samples.remove(ChunkPos.toLong(pos.getX(), pos.getZ()));
+        }
+    }
+
+    record Sample(int groundY, double temperature, boolean sunScaled) {
+        static Sample of(World world, BlockPos pos) {
+            BlockState state = world.getBlockState(pos);
+
+            if (state.isAir()) {
+                return new Sample(pos.getY(), WeatherConditions.VOID_UPDRAFT, false);
+            }
+
+            if (state.isOf(Blocks.SOUL_SAND) || state.isOf(Blocks.SOUL_SOIL)) {
+                return new Sample(pos.getY(), WeatherConditions.SOUL_SAND_UPDRAFT, false);
+            }
+
+            if (state.isOf(Blocks.LAVA) || state.isOf(Blocks.LAVA_CAULDRON)
+                    || state.isIn(BlockTags.FIRE)
+                    || state.isIn(BlockTags.CAMPFIRES)
+                    || state.isOf(Blocks.MAGMA_BLOCK)) {
+                return new Sample(pos.getY(), WeatherConditions.FIRE_UPDRAFT, false);
+            }
+
+            if (state.isIn(BlockTags.SAND)) {
+                return new Sample(pos.getY(), WeatherConditions.SAND_UPDRAFT, true);
+            }
+
+            if (state.isIn(BlockTags.SNOW) || state.isIn(BlockTags.ICE)) {
+                return new Sample(pos.getY(), WeatherConditions.ICE_UPDRAFT, true);
+            }
+
+            if (state.getFluidState().isIn(FluidTags.WATER)) {
+                int depth = 0;
+                BlockPos.Mutable mutable = pos.mutableCopy();
+                while (depth < 15 && world.getFluidState(mutable).isIn(FluidTags.WATER)) {
+                    mutable.move(Direction.DOWN);
+                    depth++;
+                }
+
+                return new Sample(pos.getY(), depth / 15F, true);
+            }
+
+            return new Sample(pos.getY(), 0, false);
+        }
+    }
+
+    public interface Source {
+        AirflowField getAirflowField();
+    }
+}
@@ -10,13 +10,14 @@ import com.minelittlepony.unicopia.network.MsgBlockDestruction;
 import com.minelittlepony.unicopia.util.Tickable;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
 import net.minecraft.block.BlockState;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper.WrapperLookup;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
 
@@ -47,6 +48,15 @@ public class BlockDestructionManager implements Tickable {
     }
 
     public void setBlockDestruction(BlockPos pos, float amount) {
+        if (Destruction.isUnset(amount)) {
+            // only positions with actual damage are tracked, so clearing an untracked one is a no-op
+            Destruction destr = chunks.getState(pos);
+            if (destr != null) {
+                destr.set(UNSET_DAMAGE);
+                chunks.markDirty();
+            }
+            return;
+        }
         chunks.getOrCreateState(pos).set(amount);
         chunks.markDirty();
     }
@@ -62,53 +72,77 @@ public class BlockDestructionManager implements Tickable {
 
     public void onBlockChanged(BlockPos pos, BlockState oldState, BlockState newstate) {
         if (oldState.getBlock() != newstate.getBlock()) {
-            setBlockDestruction(pos, UNSET_DAMAGE);
+            Destruction destr = chunks.getState(pos);
+            if (destr != null) {
+                destr.set(UNSET_DAMAGE);
+            }
         }
     }
 
+    public void onChunkLoaded(ChunkPos pos) {
+        chunks.onChunkLoaded(pos);
+    }
+
+    public void onChunkUnloaded(ChunkPos pos) {
+        chunks.onChunkUnloaded(pos);
+    }
+
     @Override
     public void tick() {
         chunks.tick();
     }
 
     private void sendUpdates(Long2ObjectMap<Destruction> destructions, List<ServerPlayerEntity> players) {
-        Long2ObjectOpenHashMap<Float> values = new Long2ObjectOpenHashMap<>();
-
-        destructions.forEach((blockPos, item) -> {
-            if (item.dirty) {
-                item.dirty = false;
-                values.put(blockPos.longValue(), (Float)item.amount);
-            }
-        });
+        long[] positions = new long[destructions.size()];
+        float[] amounts = new float[positions.length];
+        int i = 0;
+        for (var entry : Long2ObjectMaps.fastIterable(destructions)) {
+            positions[i] = entry.getLongKey();
+            amounts[i] = entry.getValue().amount;
+            i++;
+        }
 
-        var packet = Channel.SERVER_BLOCK_DESTRUCTION.toPacket(new MsgBlockDestruction(values));
-        players.forEach(player -> {
-            if (player instanceof ServerPlayerEntity spe) {
-                spe.networkHandler.sendPacket(packet);
-            }
-        });
+        var packet = Channel.SERVER_BLOCK_DESTRUCTION.toPacket(new MsgBlockDestruction(positions, amounts));
+        players.forEach(player -> player.networkHandler.sendPacket(packet));
     }
 
-    private class Destruction implements WorldOverlay.State {
+    private static class Destruction implements WorldOverlay.State {
         float amount = UNSET_DAMAGE;
         int age = DESTRUCTION_COOLDOWN;
         boolean dirty;
 
+        static boolean isUnset(float amount) {
+            return amount < 0 || amount >= MAX_DAMAGE;
+        }
+
         @Override
         public boolean tick() {
+            if (amount < 0) {
+                // keep the reset around until it has been sent
+                return !dirty;
+            }
+
             if (age-- > 0) {
                 return false;
             }
 
-            if (amount >= 0) {
-                set(amount - 1);
-            }
-            return amount < 0 || age-- <= 0;
+            set(amount - 1);
+            return false;
+        }
+
+        @Override
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        @Override
+        public void markSynced() {
+            dirty = false;
         }
 
         void set(float amount) {
             this.age = DESTRUCTION_COOLDOWN;
-            this.amount = amount >= 0 && amount < MAX_DAMAGE ? amount : UNSET_DAMAGE;
+            this.amount = isUnset(amount) ? UNSET_DAMAGE : amount;
             this.dirty = true;
         }
 
@@ -0,0 +1,132 @@
+package com.minelittlepony.unicopia.server.world;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.minelittlepony.unicopia.block.cloud.CloudLike;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Tracks the topmost cloud block in each column of a chunk.
+ * <p>
+ * Clouds are left out of the vanilla surface heightmaps, so this fills in for them wherever the cloud layer matters.
+ * Heights are computed the first time a chunk is queried and then kept up to date as blocks in it change.
+ */
+public class CloudHeightmap {
+    private final WorldChunk chunk;
+
+    @Nullable
+    private int[] heights;
+
+    public CloudHeightmap(WorldChunk chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * Gets the y coordinate of the highest cloud block in a column, or one below the bottom of the world if there are none.
+     * Columns in chunks that aren't loaded are treated as having no clouds.
+     */
+    public static int getTopY(World world, int x, int z) {
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(z));
+        return chunk instanceof Source source ? source.getCloudHeightmap().get(x, z) : world.getBottomY() - 1;
+    }
+
+    public int get(int x, int z) {
+        if (heights == null) {
+            heights = compute();
+        }
+        return heights[toIndex(x, z)];
+    }
+
+    public void onBlockChanged(BlockPos pos, BlockState state) {
+        if (heights == null) {
+            return;
+        }
+        int index = toIndex(pos.getX(), pos.getZ());
+        if (isCloud(state)) {
+            heights[index] = Math.max(heights[index], pos.getY());
+        } else if (heights[index] == pos.getY()) {
+            heights[index] = findTopCloud(pos.getX(), pos.getY() - 1, pos.getZ());
+        }
+    }
+
+    /**
+     * Discards the computed heights, eg. when the chunk's contents are replaced wholesale.
+     */
+    public void invalidate() {
+        heights = null;
+    }
+
+    private int[] compute() {
+        int[] heights = new int[16 * 16];
+        int none = chunk.getBottomY() - 1;
+        Arrays.fill(heights, none);
+
+        ChunkSection[] sections = chunk.getSectionArray();
+        int remaining = heights.length;
+        for (int i = sections.length - 1; i >= 0 && remaining > 0; i--) {
+            ChunkSection section = sections[i];
+            if (!hasClouds(section)) {
+                continue;
+            }
+            int minY = ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(i));
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int index = toIndex(x, z);
+                    if (heights[index] != none) {
+                        continue;
+                    }
+                    for (int y = 15; y >= 0; y--) {
+                        if (isCloud(section.getBlockState(x, y, z))) {
+                            heights[index] = minY + y;
+                            remaining--;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return heights;
+    }
+
+    private int findTopCloud(int x, int fromY, int z) {
+        ChunkSection[] sections = chunk.getSectionArray();
+        for (int i = Math.min(sections.length - 1, chunk.getSectionIndex(fromY)); i >= 0; i--) {
+            ChunkSection section = sections[i];
+            if (!hasClouds(section)) {
+                continue;
+            }
+            int minY = ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(i));
+            for (int y = Math.min(15, fromY - minY); y >= 0; y--) {
+                if (isCloud(section.getBlockState(x & 15, y, z & 15))) {
+                    return minY + y;
+                }
+            }
+        }
+        return chunk.getBottomY() - 1;
+    }
+
+    private static boolean hasClouds(ChunkSection section) {
+        // only looks at the section's palette
+        return !section.isEmpty() && section.hasAny(CloudHeightmap::isCloud);
+    }
+
+    private static boolean isCloud(BlockState state) {
+        return state.getBlock() instanceof CloudLike;
+    }
+
+    private static int toIndex(int x, int z) {
+        return (x & 15) + (z & 15) * 16;
+    }
+
+    public interface Source {
+        CloudHeightmap getCloudHeightmap();
+    }
+}
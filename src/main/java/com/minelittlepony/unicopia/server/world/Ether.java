@@ -2,6 +2,7 @@ package com.minelittlepony.unicopia.server.world;
 
 import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
@@ -11,6 +12,7 @@ import org.jetbrains.annotations.Nullable;
 import com.minelittlepony.unicopia.Unicopia;
 import com.minelittlepony.unicopia.ability.magic.Caster;
 import com.minelittlepony.unicopia.ability.magic.spell.Spell;
+import com.minelittlepony.unicopia.ability.magic.spell.effect.HydrophobicSpell;
 import com.minelittlepony.unicopia.ability.magic.spell.effect.SpellType;
 import com.minelittlepony.unicopia.entity.EntityReference;
 import com.minelittlepony.unicopia.server.world.chunk.Chunk;
@@ -20,6 +22,7 @@ import com.minelittlepony.unicopia.util.serialization.NbtSerialisable;
 import net.minecraft.nbt.*;
 import net.minecraft.registry.RegistryWrapper.WrapperLookup;
 import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.MathHelper;
@@ -28,88 +31,74 @@ import net.minecraft.world.World;
 
 public class Ether extends PersistentState implements Tickable {
     private static final Identifier ID = Unicopia.id("ether");
+    /**
+     * Entries are only re-indexed once per tick, so we pad them a little to
+     * account for casters that have moved since.
+     */
+    private static final int TYPE_INDEX_MARGIN = 2;
 
     public static Ether get(World world) {
         return WorldOverlay.getPersistableStorage(world, ID, Ether::new, Ether::new);
     }
 
-    private final Map<Identifier, Map<UUID, Map<UUID, Entry<?>>>> endpoints;
+    /**
+     * Entries are striped by spell type. Each type has its own lock for writers, while readers
+     * go through concurrent maps or an immutable snapshot that is swapped out whenever entries are added or removed.
+     */
+    private final Map<Identifier, Endpoints> endpoints = new ConcurrentHashMap<>();
     private final PositionalDataMap<Entry<?>> positionData = new PositionalDataMap<>();
 
-    private final Object locker = new Object();
-
     private final World world;
 
     Ether(World world, NbtCompound compound) {
         this.world = world;
-        this.endpoints = NbtSerialisable.readMap(compound.getCompound("endpoints"), Identifier::tryParse, typeNbt -> {
-            return NbtSerialisable.readMap((NbtCompound)typeNbt, UUID::fromString, entityNbt -> {
-                return NbtSerialisable.readMap((NbtCompound)entityNbt, UUID::fromString, nbt -> new Entry<>(nbt, world.getRegistryManager()));
-            });
+        NbtCompound endpointsNbt = compound.getCompound("endpoints");
+        endpointsNbt.getKeys().forEach(key -> {
+            Identifier typeId = Identifier.tryParse(key);
+            if (typeId != null) {
+                getEndpoints(typeId).load(NbtSerialisable.readMap(endpointsNbt.getCompound(key), UUID::fromString, entityNbt -> {
+                    return NbtSerialisable.readMap((NbtCompound)entityNbt, UUID::fromString, nbt -> new Entry<>(typeId, nbt, world.getRegistryManager()));
+                }));
+            }
         });
     }
 
     Ether(World world) {
         this.world = world;
-        this.endpoints = new HashMap<>();
     }
 
     @Override
     public NbtCompound writeNbt(NbtCompound compound, WrapperLookup lookup) {
-        synchronized (locker) {
-            pruneNodes();
-            compound.put("endpoints", NbtSerialisable.writeMap(endpoints, Identifier::toString, entities -> {
-                return NbtSerialisable.writeMap(entities, UUID::toString, spells -> {
-                    return NbtSerialisable.writeMap(spells, UUID::toString, e -> e.toNBT(lookup));
-                });
-            }));
-            return compound;
-        }
+        NbtCompound endpointsNbt = new NbtCompound();
+        endpoints.forEach((typeId, entries) -> {
+            NbtCompound entitiesNbt = entries.write(lookup);
+            if (!entitiesNbt.isEmpty()) {
+                endpointsNbt.put(typeId.toString(), entitiesNbt);
+            }
+        });
+        compound.put("endpoints", endpointsNbt);
+        return compound;
     }
 
-    @SuppressWarnings("unchecked")
-    public <T extends Spell> Entry<T> getOrCreate(T spell, Caster<?> caster) {
-        synchronized (locker) {
-            Entry<T> entry = (Entry<T>)endpoints
-                    .computeIfAbsent(spell.getTypeAndTraits().type().getId(), typeId -> new HashMap<>())
-                    .computeIfAbsent(caster.asEntity().getUuid(), entityId -> new HashMap<>())
-                    .computeIfAbsent(spell.getUuid(), spellid -> {
-                        markDirty();
-                        return new Entry<>(spell, caster);
-                    });
+    private Endpoints getEndpoints(Identifier typeId) {
+        return endpoints.computeIfAbsent(typeId, id -> new Endpoints());
+    }
 
-            if (entry.spell.get() != spell) {
-                entry.spell = new WeakReference<>(spell);
-                markDirty();
-            }
-            if (entry.removed) {
-                entry.removed = false;
-                positionData.update(entry);
-                markDirty();
-            }
-            return entry;
-        }
+    public <T extends Spell> Entry<T> getOrCreate(T spell, Caster<?> caster) {
+        return getEndpoints(spell.getTypeAndTraits().type().getId()).getOrCreate(spell, caster);
     }
 
     @Override
     public void tick() {
-        endpoints.values().forEach(byType -> {
-            byType.values().forEach(entries -> {
-                entries.values().forEach(Entry::update);
-            });
+        endpoints.values().forEach(entries -> {
+            entries.snapshot.forEach(Entry::update);
         });
     }
 
     public <T extends Spell> void remove(SpellType<T> spellType, UUID entityId) {
-        synchronized (locker) {
-            endpoints.computeIfPresent(spellType.getId(), (typeId, entries) -> {
-                Map<UUID, Entry<?>> data = entries.remove(entityId);
-                if (data != null) {
-                    markDirty();
-                    data.values().forEach(positionData::remove);
-                }
-                return entries.isEmpty() ? null : entries;
-            });
+        Endpoints endpoints = this.endpoints.get(spellType.getId());
+        if (endpoints != null) {
+            endpoints.remove(entityId);
         }
     }
 
@@ -139,13 +128,12 @@ public class Ether extends PersistentState implements Tickable {
         if (spellId == null) {
             return null;
         }
-        synchronized (locker) {
-            Entry<?> entry = endpoints
-                    .getOrDefault(spell.getId(), Map.of())
-                    .getOrDefault(entityId, Map.of())
-                    .get(spellId);
-            return entry == null || entry.isDead() ? null : (Entry<T>)entry;
+        Endpoints endpoints = this.endpoints.get(spell.getId());
+        if (endpoints == null) {
+            return null;
         }
+        Entry<?> entry = endpoints.entities.getOrDefault(entityId, Map.of()).get(spellId);
+        return entry == null || entry.isDead() ? null : (Entry<T>)entry;
     }
 
     public <T extends Spell> boolean anyMatch(SpellType<T> spellType, BiPredicate<T, Caster<?>> condition) {
@@ -156,20 +144,60 @@ public class Ether extends PersistentState implements Tickable {
         });
     }
 
-    @SuppressWarnings("unchecked")
     public <T extends Spell> boolean anyMatch(SpellType<T> spellType, Predicate<Entry<T>> condition) {
-        synchronized (locker) {
-            for (var entries : endpoints.getOrDefault(spellType.getId(), Map.of()).values()) {
-                for (var entry : entries.values()) {
-                    if (!entry.isDead() && condition.test((Entry<T>)entry)) {
-                        return true;
-                    }
-                }
+        Endpoints endpoints = this.endpoints.get(spellType.getId());
+        return endpoints != null && anyMatch(endpoints.snapshot, condition);
+    }
+
+    /**
+     * Checks whether any live entry of the given spell type whose area may cover the given position matches a condition.
+     * Only entries indexed near the position are tested, so the condition must still perform its own precise range check.
+     */
+    public <T extends Spell> boolean anyMatch(SpellType<T> spellType, BlockPos pos, Predicate<Entry<T>> condition) {
+        Endpoints endpoints = this.endpoints.get(spellType.getId());
+        return endpoints != null && anyMatch(endpoints.index.getNearby(pos), condition);
+    }
+
+    /**
+     * Gets all live entries of the given spell type whose areas may overlap the given region.
+     * Like {@link #anyMatch(SpellType, BlockPos, Predicate)} this is only a coarse check.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Spell> List<Entry<T>> getNearby(SpellType<T> spellType, BlockBox region) {
+        Endpoints endpoints = this.endpoints.get(spellType.getId());
+        if (endpoints == null) {
+            return List.of();
+        }
+        List<Entry<T>> result = new ArrayList<>();
+        for (var entry : endpoints.index.getNearby(region)) {
+            if (!entry.isDead()) {
+                result.add((Entry<T>)entry);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Spell> boolean anyMatch(List<Entry<?>> candidates, Predicate<Entry<T>> condition) {
+        for (var entry : candidates) {
+            if (!entry.isDead() && condition.test((Entry<T>)entry)) {
+                return true;
             }
         }
         return false;
     }
 
+    /**
+     * Called when fluid is placed or flows into a position. Spells covering it that keep fluids out are told so they can clear it.
+     */
+    public void onFluidPlaced(BlockPos pos) {
+        for (Entry<?> entry : getAtPosition(pos)) {
+            if (entry.getSpell() instanceof HydrophobicSpell spell) {
+                spell.onFluidPlaced(pos);
+            }
+        }
+    }
+
     public Set<Entry<?>> getAtPosition(BlockPos pos) {
         return world.isClient() ? Set.of() : positionData.getState(pos);
     }
@@ -178,42 +206,104 @@ public class Ether extends PersistentState implements Tickable {
         return world.isClient() ? null : positionData.getChunk(pos);
     }
 
-    private void pruneNodes() {
-        this.endpoints.values().removeIf(entities -> {
-            entities.values().removeIf(spells -> {
-                spells.values().removeIf(Entry::isDead);
+    private final class Endpoints {
+        private final Map<UUID, Map<UUID, Entry<?>>> entities = new ConcurrentHashMap<>();
+        private final PositionalDataMap<Entry<?>> index = new PositionalDataMap<>(TYPE_INDEX_MARGIN);
+
+        private volatile List<Entry<?>> snapshot = List.of();
+
+        synchronized void load(Map<UUID, Map<UUID, Entry<?>>> entities) {
+            entities.forEach((entityId, spells) -> this.entities.put(entityId, new ConcurrentHashMap<>(spells)));
+            refreshSnapshot();
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized <T extends Spell> Entry<T> getOrCreate(T spell, Caster<?> caster) {
+            Map<UUID, Entry<?>> spells = entities.computeIfAbsent(caster.asEntity().getUuid(), entityId -> new ConcurrentHashMap<>());
+            Entry<T> entry = (Entry<T>)spells.get(spell.getUuid());
+
+            if (entry == null) {
+                entry = new Entry<>(spell, caster);
+                spells.put(spell.getUuid(), entry);
+                refreshSnapshot();
+                markDirty();
+            }
+            if (entry.spell.get() != spell) {
+                entry.spell = new WeakReference<>(spell);
+                markDirty();
+            }
+            if (entry.removed) {
+                entry.removed = false;
+                entry.updatePosition();
+                markDirty();
+            }
+            return entry;
+        }
+
+        synchronized void remove(UUID entityId) {
+            Map<UUID, Entry<?>> data = entities.remove(entityId);
+            if (data != null) {
+                markDirty();
+                data.values().forEach(Entry::removePosition);
+                refreshSnapshot();
+            }
+        }
+
+        synchronized NbtCompound write(WrapperLookup lookup) {
+            if (entities.values().removeIf(spells -> {
+                spells.values().removeIf(entry -> {
+                    if (entry.isDead()) {
+                        entry.removePosition();
+                        return true;
+                    }
+                    return false;
+                });
                 return spells.isEmpty();
+            })) {
+                refreshSnapshot();
+            }
+            return NbtSerialisable.writeMap(entities, UUID::toString, spells -> {
+                return NbtSerialisable.writeMap(spells, UUID::toString, e -> e.toNBT(lookup));
             });
-            return entities.isEmpty();
-        });
+        }
+
+        private void refreshSnapshot() {
+            List<Entry<?>> snapshot = new ArrayList<>();
+            entities.values().forEach(spells -> snapshot.addAll(spells.values()));
+            this.snapshot = List.copyOf(snapshot);
+        }
     }
 
     public class Entry<T extends Spell> implements PositionalDataMap.Hotspot, NbtSerialisable {
         public final EntityReference<?> entity;
 
+        private final Identifier typeId;
+
         @Nullable
-        private UUID spellId;
-        private WeakReference<T> spell;
+        private volatile UUID spellId;
+        private volatile WeakReference<T> spell;
 
-        private boolean removed;
+        private volatile boolean removed;
 
         private float pitch;
         private final AtomicBoolean changed = new AtomicBoolean(true);
         private float yaw;
         private float radius;
 
-        private final Set<UUID> claimants = new HashSet<>();
+        private final Set<UUID> claimants = ConcurrentHashMap.newKeySet();
 
-        private BlockPos currentPos = BlockPos.ORIGIN;
+        private volatile BlockPos currentPos = BlockPos.ORIGIN;
         private BlockPos previousPos = BlockPos.ORIGIN;
 
-        private Entry(NbtElement nbt, WrapperLookup lookup) {
+        private Entry(Identifier typeId, NbtElement nbt, WrapperLookup lookup) {
+            this.typeId = typeId;
             this.entity = new EntityReference<>();
             this.spell = new WeakReference<>(null);
             this.fromNBT((NbtCompound)nbt, lookup);
         }
 
         public Entry(T spell, Caster<?> caster) {
+            this.typeId = spell.getTypeAndTraits().type().getId();
             this.entity = new EntityReference<>(caster.asEntity());
             this.spell = new WeakReference<>(spell);
             spellId = spell.getUuid();
@@ -221,13 +311,27 @@ public class Ether extends PersistentState implements Tickable {
         }
 
         void update() {
+            if (removed) {
+                // dead entries linger in the snapshot until the next save and mustn't be put back into the indices
+                return;
+            }
             previousPos = currentPos;
             currentPos = entity.getTarget().map(t -> BlockPos.ofFloored(t.pos())).orElse(BlockPos.ORIGIN);
             if (!currentPos.equals(previousPos)) {
-                positionData.update(this);
+                updatePosition();
             }
         }
 
+        void updatePosition() {
+            positionData.update(this);
+            getEndpoints(typeId).index.update(this);
+        }
+
+        void removePosition() {
+            positionData.remove(this);
+            getEndpoints(typeId).index.remove(this);
+        }
+
         public boolean hasChanged() {
             return changed.getAndSet(false);
         }
@@ -269,9 +373,10 @@ public class Ether extends PersistentState implements Tickable {
 
         public void setRadius(float radius) {
             if (!MathHelper.approximatelyEquals(this.radius, radius)) {
+                boolean resized = MathHelper.ceil(radius) != MathHelper.ceil(this.radius);
                 this.radius = radius;
-                if ((int)radius != (int)this.radius) {
-                    positionData.update(this);
+                if (resized) {
+                    updatePosition();
                 }
                 changed.set(true);
             }
@@ -297,7 +402,7 @@ public class Ether extends PersistentState implements Tickable {
         public void markDead() {
             Unicopia.LOGGER.debug("Marking " + entity.getTarget().orElse(null) + " as dead");
             removed = true;
-            positionData.remove(this);
+            removePosition();
             claimants.clear();
             markDirty();
         }
@@ -1,36 +1,41 @@
 package com.minelittlepony.unicopia.server.world;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.minelittlepony.unicopia.Unicopia;
-import com.minelittlepony.unicopia.entity.DynamicLightSource;
 
-import it.unimi.dsi.fastutil.objects.AbstractObject2IntMap;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import net.minecraft.entity.Entity;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper.WrapperLookup;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.world.PersistentState;
 import net.minecraft.world.World;
 
+/**
+ * Tracks the positions of entities that give off light so the light engine can include them.
+ * <p>
+ * Sources report their own position and level whenever either changes. Those are indexed by
+ * chunk section, with each section's levels held in an immutable map that is swapped out whenever
+ * a source in it changes. The lighting thread reads them without locking, so looking up the light
+ * at any one position is just two hash lookups.
+ */
 public class LightSources extends PersistentState {
     private static final Identifier ID = Unicopia.id("light_sources");
 
-    private final Set<UUID> lightSourceIds = new HashSet<>();
-    private final AbstractObject2IntMap<UUID> lightSourceClientIds = new Object2IntOpenHashMap<>();
-    private volatile boolean empty = true;
+    private final Map<UUID, Source> sources = new HashMap<>();
+    private final Map<Long, Long2IntMap> sections = new ConcurrentHashMap<>();
 
     private final World world;
 
-    private final Function<UUID, Entity> entitySupplier;
-
     public static LightSources get(World world) {
         return WorldOverlay.getPersistableStorage(world, ID, LightSources::new, LightSources::new);
     }
@@ -41,7 +46,6 @@ public class LightSources extends PersistentState {
 
     LightSources(World world) {
         this.world = world;
-        entitySupplier = world instanceof ServerWorld s ? s::getEntity : id -> world.getEntityById(lightSourceClientIds.getInt(id));
     }
 
     @Override
@@ -49,74 +53,91 @@ public class LightSources extends PersistentState {
         return compound;
     }
 
-    public void addLightSource(Entity entity) {
-        synchronized (lightSourceIds) {
-            lightSourceIds.add(entity.getUuid());
-            lightSourceClientIds.put(entity.getUuid(), entity.getId());
-            empty = false;
+    /**
+     * Adds an entity's light at the given position, or moves it there if it was already added.
+     * The old and new positions are both queued for a light update.
+     */
+    public void setLightSource(Entity entity, BlockPos pos, int level) {
+        Source source = new Source(pos.asLong(), level);
+        Source old;
+        synchronized (sources) {
+            old = sources.put(entity.getUuid(), source);
+            if (source.equals(old)) {
+                return;
+            }
+            reindex(old, source);
         }
+        if (old != null && old.pos() != source.pos()) {
+            checkBlock(BlockPos.fromLong(old.pos()));
+        }
+        checkBlock(pos);
     }
 
     public void removeLightSource(Entity entity) {
-        if (empty) {
-            return;
-        }
-        synchronized (lightSourceIds) {
-            lightSourceIds.remove(entity.getUuid());
-            lightSourceClientIds.removeInt(entity.getUuid());
-            empty = lightSourceIds.isEmpty();
+        Source old;
+        synchronized (sources) {
+            old = sources.remove(entity.getUuid());
+            if (old == null) {
+                return;
+            }
+            reindex(old, null);
         }
+        checkBlock(BlockPos.fromLong(old.pos()));
     }
 
     public int getLuminance(long blockPos) {
-        if (empty) {
-            return 0;
-        }
-        final int[] result = {0};
-        forEachLightSource((pos, level) -> {
-           if (pos.asLong() == blockPos) {
-               result[0] += level;
-           }
-        });
-        return result[0];
+        Long2IntMap levels = sections.get(ChunkSectionPos.fromBlockPos(blockPos));
+        return levels == null ? 0 : levels.get(blockPos);
     }
 
     public void forEachLightSource(ChunkPos chunkPos, LightSourceConsumer consumer) {
-        forEachLightSource((pos, level) -> {
-            if (checkPos(chunkPos, pos)) {
-                consumer.accept(pos, level);
+        if (sections.isEmpty()) {
+            return;
+        }
+        for (int y = world.getBottomSectionCoord(); y < world.getTopSectionCoord(); y++) {
+            Long2IntMap levels = sections.get(ChunkSectionPos.asLong(chunkPos.x, y, chunkPos.z));
+            if (levels != null) {
+                for (Long2IntMap.Entry entry : Long2IntMaps.fastIterable(levels)) {
+                    consumer.accept(entry.getLongKey(), entry.getIntValue());
+                }
             }
-        });
+        }
     }
 
-    public void forEachLightSource(LightSourceConsumer consumer) {
-        if (empty) {
-            return;
+    /**
+     * Replaces the levels of only the sections a source has left or entered. Callers hold the lock on {@link #sources}.
+     */
+    private void reindex(Source from, Source to) {
+        if (from != null) {
+            adjust(from.pos(), -from.level());
         }
-        synchronized (lightSourceIds) {
-            lightSourceIds.removeIf(id -> {
-                Entity entity = entitySupplier.apply(id);
-                if (entity instanceof DynamicLightSource source) {
-                    consumer.accept(entity.getBlockPos(), source.getLightLevel());
-                    return false;
-                }
-                return true;
-            });
-            empty = lightSourceIds.isEmpty();
+        if (to != null) {
+            adjust(to.pos(), to.level());
         }
     }
 
-    private boolean checkPos(ChunkPos chunkPos, BlockPos pos) {
-        return world.isInBuildLimit(pos)
-            && checkPos(pos.getX(), chunkPos.getStartX(), chunkPos.getEndX())
-            && checkPos(pos.getZ(), chunkPos.getStartZ(), chunkPos.getEndZ());
+    private void adjust(long pos, int delta) {
+        long section = ChunkSectionPos.fromBlockPos(pos);
+        Long2IntOpenHashMap levels = new Long2IntOpenHashMap(sections.getOrDefault(section, Long2IntMaps.EMPTY_MAP));
+        if (levels.addTo(pos, delta) + delta <= 0) {
+            levels.remove(pos);
+        }
+        if (levels.isEmpty()) {
+            sections.remove(section);
+        } else {
+            sections.put(section, levels);
+        }
     }
 
-    private boolean checkPos(int p, int min, int max) {
-        return p >= min && p <= max;
+    private void checkBlock(BlockPos pos) {
+        try {
+            world.getLightingProvider().checkBlock(pos);
+        } catch (Exception ignored) { }
     }
 
+    private record Source(long pos, int level) {}
+
     public interface LightSourceConsumer {
-        void accept(BlockPos pos, int light);
+        void accept(long pos, int light);
     }
 }
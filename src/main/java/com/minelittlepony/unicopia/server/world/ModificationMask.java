@@ -0,0 +1,150 @@
+package com.minelittlepony.unicopia.server.world;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.minelittlepony.unicopia.ability.magic.Caster;
+import com.minelittlepony.unicopia.ability.magic.spell.effect.AreaProtectionSpell;
+import com.minelittlepony.unicopia.ability.magic.spell.effect.SpellType;
+import com.minelittlepony.unicopia.util.shape.Shape;
+
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.GameRules;
+import net.minecraft.world.World;
+
+/**
+ * The blocks within a region that a caster is allowed to modify.
+ * <p>
+ * Gives the same answers as {@link Caster#canModifyAt(BlockPos, ModificationType)}, but everything that's the same
+ * for every block (the caster's owner and their permissions, game rules, which protection spells overlap the region)
+ * is resolved once up front, leaving only the checks that depend on the block itself.
+ */
+public final class ModificationMask {
+    private final BlockBox region;
+    private final BitSet mask;
+
+    public static ModificationMask of(Caster<?> caster, Shape shape, ModificationType mod) {
+        BlockBox region = BlockBox.create(BlockPos.ofFloored(shape.getLowerBound()), BlockPos.ofFloored(shape.getUpperBound()));
+        return of(caster, region, mod, pos -> shape.isPointInside(Vec3d.ofCenter(pos)));
+    }
+
+    public static ModificationMask of(Caster<?> caster, BlockBox region, ModificationType mod) {
+        return of(caster, region, mod, pos -> true);
+    }
+
+    private static ModificationMask of(Caster<?> caster, BlockBox region, ModificationType mod, Predicate<BlockPos> filter) {
+        ModificationMask result = new ModificationMask(region);
+        World world = caster.asWorld();
+
+        @Nullable
+        PlayerEntity player = null;
+        boolean checkPlayer = false;
+
+        if (mod.checkPhysical()) {
+            if (caster.getMaster() instanceof PlayerEntity p) {
+                if (!p.canModifyBlocks()) {
+                    return result;
+                }
+                player = p;
+                checkPlayer = true;
+            } else {
+                if (world instanceof ServerWorld sw) {
+                    player = OfflinePlayerCache.getOfflinePlayer(sw, caster.getMasterId().orElse(null));
+                    if (player != null && !player.canModifyBlocks()) {
+                        return result;
+                    }
+                    checkPlayer = true;
+                }
+
+                if (!world.getGameRules().getBoolean(GameRules.DO_MOB_GRIEFING)) {
+                    return result;
+                }
+            }
+        }
+
+        List<Protection> protections = mod.checkMagical() ? Protection.find(world, region) : List.of();
+
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int y = region.getMinY(); y <= region.getMaxY(); y++) {
+            for (int z = region.getMinZ(); z <= region.getMaxZ(); z++) {
+                for (int x = region.getMinX(); x <= region.getMaxX(); x++) {
+                    pos.set(x, y, z);
+                    if (!filter.test(pos)) {
+                        continue;
+                    }
+                    if (mod.checkPhysical()) {
+                        if (world.getBlockState(pos).getHardness(world, pos) < 0) {
+                            continue;
+                        }
+                        if (checkPlayer && !world.canPlayerModifyAt(player, pos)) {
+                            continue;
+                        }
+                    }
+                    if (!protections.isEmpty() && Protection.blocks(protections, caster, Vec3d.ofCenter(pos))) {
+                        continue;
+                    }
+                    result.mask.set(result.getIndex(x, y, z));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private ModificationMask(BlockBox region) {
+        this.region = region;
+        this.mask = new BitSet(region.getBlockCountX() * region.getBlockCountY() * region.getBlockCountZ());
+    }
+
+    public BlockBox getRegion() {
+        return region;
+    }
+
+    public boolean isEmpty() {
+        return mask.isEmpty();
+    }
+
+    /**
+     * Checks whether the caster can modify the block at the given position.
+     * Positions outside of this mask's region are never modifiable.
+     */
+    public boolean canModifyAt(BlockPos pos) {
+        return region.contains(pos) && mask.get(getIndex(pos.getX(), pos.getY(), pos.getZ()));
+    }
+
+    private int getIndex(int x, int y, int z) {
+        return ((y - region.getMinY()) * region.getBlockCountZ() + (z - region.getMinZ())) * region.getBlockCountX() + (x - region.getMinX());
+    }
+
+    private record Protection(Vec3d center, float radius, AreaProtectionSpell spell, Caster<?> source) {
+        static List<Protection> find(World world, BlockBox region) {
+            List<Protection> protections = new ArrayList<>();
+            for (Ether.Entry<AreaProtectionSpell> entry : Ether.get(world).getNearby(SpellType.ARCANE_PROTECTION, region)) {
+                var target = entry.entity.getTarget().orElse(null);
+                Caster<?> source = entry.getCaster();
+                AreaProtectionSpell spell = entry.getSpell();
+                if (target != null && source != null && spell != null) {
+                    protections.add(new Protection(target.pos(), entry.getRadius(), spell, source));
+                }
+            }
+            return protections;
+        }
+
+        static boolean blocks(List<Protection> protections, Caster<?> caster, Vec3d pos) {
+            for (Protection protection : protections) {
+                if (protection.center().distanceTo(pos) <= protection.radius() && protection.spell().blocksMagicFor(protection.source(), caster, pos)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.minelittlepony.unicopia.server.world;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.jetbrains.annotations.Nullable;
+
+import com.minelittlepony.unicopia.Unicopia;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.dimension.DimensionType;
+
+/**
+ * Stores chunk-keyed data as one small compressed file per 32x32 chunk region,
+ * named after the dimension's own region files (<code>r.x.z</code>) so only
+ * the regions that changed have to be rewritten when the world saves.
+ */
+class RegionFileStorage {
+    private final Path directory;
+
+    RegionFileStorage(ServerWorld world, Identifier id) {
+        this.directory = DimensionType.getSaveDirectory(world.getRegistryKey(), world.getServer().getSavePath(WorldSavePath.ROOT))
+                .resolve(id.getNamespace())
+                .resolve(id.getPath().replace('/', '_'));
+    }
+
+    public static long getRegion(long chunkPos) {
+        return ChunkPos.toLong(ChunkPos.getPackedX(chunkPos) >> 5, ChunkPos.getPackedZ(chunkPos) >> 5);
+    }
+
+    @Nullable
+    public NbtCompound read(long region) {
+        Path file = getFile(region);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return NbtIo.readCompressed(file, NbtSizeTracker.ofUnlimitedBytes());
+        } catch (IOException e) {
+            Unicopia.LOGGER.error("Could not read region file {}", file, e);
+            return null;
+        }
+    }
+
+    public void write(long region, NbtCompound data) {
+        Path file = getFile(region);
+        try {
+            if (data.isEmpty()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            NbtIo.writeCompressed(data, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Unicopia.LOGGER.error("Could not save region file {}", file, e);
+        }
+    }
+
+    private Path getFile(long region) {
+        return directory.resolve("r." + ChunkPos.getPackedX(region) + "." + ChunkPos.getPackedZ(region) + ".dat");
+    }
+}
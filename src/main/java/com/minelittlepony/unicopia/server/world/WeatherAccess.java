@@ -6,10 +6,8 @@ import net.fabricmc.api.EnvType;
 import net.fabricmc.api.Environment;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Direction;
-import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.Heightmap;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
 
 public interface WeatherAccess {
     void setWeatherOverride(Float rain, Float thunder);
@@ -18,6 +16,17 @@ public interface WeatherAccess {
         return WeatherConditions.get((World)this).isInRangeOfStorm(pos);
     }
 
+    /**
+     * Gets the y coordinate of the highest non-air block in a column, clouds included.
+     */
+    default int getCeilingY(int x, int z) {
+        // clouds are excluded from the vanilla surface heightmap, so the cloud heightmap makes up the difference
+        return Math.max(
+                ((World)this).getTopY(Heightmap.Type.WORLD_SURFACE, x, z) - 1,
+                CloudHeightmap.getTopY((World)this, x, z)
+        );
+    }
+
     @Environment(EnvType.CLIENT)
     default boolean isBelowClientCloudLayer(BlockPos pos) {
 
@@ -27,38 +36,26 @@ public interface WeatherAccess {
             return true;
         }
 
-        Chunk chunk = ((World)this).getChunk(pos);
-        int topSection = chunk.getHighestNonEmptySection();
-
-        if (topSection > -1) {
-            int sectionBottomY = ChunkSectionPos.getBlockCoord(topSection);
-            if (sectionBottomY >= pos.getY() - 16) {
-                BlockPos.Mutable mutable = pos.mutableCopy();
-                BlockPos.Mutable probeMutable = pos.mutableCopy();
-                int maxDistance = 16;
-
-                while (((World)this).isInBuildLimit(mutable)) {
-                    if (--maxDistance <= 0) break;
-                    if (!((World)this).isAir(probeMutable.setY(mutable.getY() + range))) {
-
-                        mutable.set(pos);
-                        maxDistance = 16;
+        // look for something overhead starting from range blocks above
+        int probeY = pos.getY() + range;
+        int ceilingY = getCeilingY(pos.getX(), pos.getZ());
+        if (ceilingY < probeY || (ceilingY >= probeY + 15 && isAirBetween(pos, probeY, probeY + 15))) {
+            return false;
+        }
 
-                        while (((World)this).isInBuildLimit(mutable)) {
-                            if (--maxDistance <= 0) break;
-                            if (((World)this).getBlockState(probeMutable.setY(mutable.getY())).getBlock() instanceof CloudLike) {
-                                return false;
-                            }
-                            mutable.move(Direction.DOWN);
-                        }
+        // there's something above, but we aren't below it if we're standing in the clouds
+        int cloudY = CloudHeightmap.getTopY((World)this, pos.getX(), pos.getZ());
+        if (cloudY <= pos.getY()) {
+            return cloudY <= pos.getY() - 15;
+        }
 
-                        return true;
-                    }
-                    mutable.move(Direction.UP);
-                }
+        BlockPos.Mutable mutable = pos.mutableCopy();
+        for (int y = pos.getY(); y > pos.getY() - 15 && ((World)this).isInBuildLimit(mutable.setY(y)); y--) {
+            if (((World)this).getBlockState(mutable).getBlock() instanceof CloudLike) {
+                return false;
             }
         }
-        return false;
+        return true;
     }
 
     default boolean isBelowCloudLayer(BlockPos pos) {
@@ -66,24 +63,23 @@ public interface WeatherAccess {
             return true;
         }
 
-        Chunk chunk = ((World)this).getChunk(pos);
-        int topSection = chunk.getHighestNonEmptySection();
-
-        if (topSection > -1) {
-            int sectionBottomY = ChunkSectionPos.getBlockCoord(topSection);
-            if (sectionBottomY >= pos.getY() - 16) {
-                BlockPos.Mutable mutable = pos.mutableCopy();
-                int maxDistance = 32;
+        int ceilingY = getCeilingY(pos.getX(), pos.getZ());
+        if (ceilingY < pos.getY()) {
+            return false;
+        }
+        return ceilingY < pos.getY() + 31 || !isAirBetween(pos, pos.getY(), pos.getY() + 31);
+    }
 
-                while (((World)this).isInBuildLimit(mutable)) {
-                    if (--maxDistance <= 0) break;
-                    if (!((World)this).isAir(mutable)) {
-                        return true;
-                    }
-                    mutable.move(Direction.UP);
-                }
+    /**
+     * Checks whether every block in a column between minY (inclusive) and maxY (exclusive) is air.
+     */
+    private boolean isAirBetween(BlockPos pos, int minY, int maxY) {
+        BlockPos.Mutable mutable = pos.mutableCopy();
+        for (int y = minY; y < maxY && ((World)this).isInBuildLimit(mutable.setY(y)); y++) {
+            if (!((World)this).isAir(mutable)) {
+                return false;
             }
         }
-        return false;
+        return true;
     }
 }
@@ -1,24 +1,22 @@
 package com.minelittlepony.unicopia.server.world;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
 import com.minelittlepony.unicopia.Unicopia;
 import com.minelittlepony.unicopia.entity.mob.StormCloudEntity;
-import com.minelittlepony.unicopia.util.MeteorlogicalUtil;
 import com.minelittlepony.unicopia.util.Tickable;
 
-import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper.WrapperLookup;
-import net.minecraft.registry.tag.BlockTags;
-import net.minecraft.registry.tag.FluidTags;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.*;
-import net.minecraft.util.math.random.Random;
 import net.minecraft.world.Heightmap;
 import net.minecraft.world.PersistentState;
 import net.minecraft.world.World;
@@ -34,21 +32,19 @@ public class WeatherConditions extends PersistentState implements Tickable {
     public static final float MAX_TERRAIN_HEIGHT = 50;
     public static final float MAX_WIND_HEIGHT = 70;
 
+    private static final double GUST_CELL_TICKS = 10;
+    private static final double GUST_CELL_SIZE = 16;
+    private static final long GUST_STRENGTH_SALT = 0x5EED0001L;
+    private static final long GUST_SURGE_SALT = 0x5EED0002L;
+    private static final long GUST_PITCH_SALT = 0x5EED0003L;
+    private static final long GUST_YAW_SALT = 0x5EED0004L;
+
     public static final Plane HEIGHT_MAP_FIELD = (world, pos) -> world.getTopY(Heightmap.Type.WORLD_SURFACE_WG, pos.getX(), pos.getZ());
     public static final Plane THERMAL_FIELD = (world, pos) -> {
         double factor = 1 - getScaledDistanceFromTerrain(pos, world, MAX_UPDRAFT_HEIGHT);
         return (float)(factor * getMaterialSurfaceTemperature(pos, world));
     };
-    public static final Plane LOCAL_ALTITUDE_FIELD = (world, pos) -> {
-        if (!world.isAir(pos)) {
-            return 0;
-        }
-        int y = pos.getY();
-        do {
-            pos.move(Direction.DOWN);
-        } while (world.isAir(pos) && world.isInBuildLimit(pos));
-        return y - pos.getY();
-    };
+    public static final Plane LOCAL_ALTITUDE_FIELD = (world, pos) -> AirflowField.of(world).getLocalAltitude(pos);
 
     private static final Identifier ID = Unicopia.id("weather_conditions");
 
@@ -65,7 +61,12 @@ public class WeatherConditions extends PersistentState implements Tickable {
 
     private boolean prevDayState;
 
-    private Map<UUID, Storm> storms = new HashMap<>();
+    private final Map<UUID, Storm> storms = new HashMap<>();
+    /**
+     * Storms by the chunks their footprint covers. Replaced wholesale whenever a storm
+     * starts, stops, or moves into different chunks so it can be read without locking.
+     */
+    private volatile Long2ObjectMap<Storm[]> stormIndex = Long2ObjectMaps.emptyMap();
 
     private WeatherConditions(World world, NbtCompound compound) {
         this(world);
@@ -82,19 +83,55 @@ public class WeatherConditions extends PersistentState implements Tickable {
 
     public void addStorm(StormCloudEntity cloud) {
         synchronized (storms) {
-            storms.computeIfAbsent(cloud.getUuid(), id -> new Storm(cloud));
+            boolean moved = storms.computeIfAbsent(cloud.getUuid(), id -> new Storm(cloud)).update(cloud);
+            if (storms.values().removeIf(Storm::shouldRemove) || moved) {
+                reindexStorms();
+            }
         }
     }
 
     public boolean isInRangeOfStorm(BlockPos pos) {
-        synchronized (storms) {
-            storms.values().removeIf(Storm::shouldRemove);
-            return storms.values().stream().anyMatch(storm -> storm.inRange(pos));
+        Storm[] candidates = stormIndex.get(ChunkPos.toLong(pos));
+        if (candidates != null) {
+            for (Storm storm : candidates) {
+                if (storm.inRange(pos)) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
+
+    private void reindexStorms() {
+        Long2ObjectMap<Storm[]> index = new Long2ObjectOpenHashMap<>();
+        for (Storm storm : storms.values()) {
+            Footprint footprint = storm.footprint;
+            for (int x = footprint.minX() >> 4; x <= footprint.maxX() >> 4; x++) {
+                for (int z = footprint.minZ() >> 4; z <= footprint.maxZ() >> 4; z++) {
+                    index.compute(ChunkPos.toLong(x, z), (chunk, candidates) -> {
+                        if (candidates == null) {
+                            return new Storm[] { storm };
+                        }
+                        candidates = Arrays.copyOf(candidates, candidates.length + 1);
+                        candidates[candidates.length - 1] = storm;
+                        return candidates;
+                    });
+                }
+            }
+        }
+        stormIndex = index;
     }
 
     @Override
     public void tick() {
+        if (!stormIndex.isEmpty()) {
+            synchronized (storms) {
+                if (storms.values().removeIf(Storm::shouldRemove)) {
+                    reindexStorms();
+                }
+            }
+        }
+
         if (interpolation < maxInterpolation) {
             interpolation++;
             markDirty();
@@ -136,25 +173,27 @@ public class WeatherConditions extends PersistentState implements Tickable {
         return compound;
     }
 
-    private class Storm {
+    private static class Storm {
         private final WeakReference<StormCloudEntity> cloud;
+        private volatile Footprint footprint;
 
         public Storm(StormCloudEntity cloud) {
             this.cloud = new WeakReference<>(cloud);
         }
 
+        /**
+         * Updates the area covered by this storm.
+         *
+         * @return true if the storm now covers a different set of chunks
+         */
+        public boolean update(StormCloudEntity cloud) {
+            Footprint previous = footprint;
+            footprint = Footprint.of(cloud);
+            return previous == null || !previous.coversSameChunks(footprint);
+        }
+
         public boolean inRange(BlockPos pos) {
-            final StormCloudEntity cloud = this.cloud.get();
-            if (cloud == null) {
-                return false;
-            }
-            BlockPos cloudPos = cloud.getBlockPos();
-            if (pos.getY() > cloudPos.getY() + cloud.getHeight()) {
-                return false;
-            }
-            float radius = cloud.getSizeInBlocks();
-            return (cloudPos.getX() - pos.getX()) <= radius
-                    && (cloudPos.getZ() - pos.getZ()) <= radius;
+            return !shouldRemove() && footprint.contains(pos);
         }
 
         public boolean shouldRemove() {
@@ -163,11 +202,35 @@ public class WeatherConditions extends PersistentState implements Tickable {
         }
     }
 
+    private record Footprint(int minX, int minZ, int maxX, int maxZ, int maxY) {
+        static Footprint of(StormCloudEntity cloud) {
+            BlockPos cloudPos = cloud.getBlockPos();
+            int radius = cloud.getSizeInBlocks();
+            return new Footprint(
+                    cloudPos.getX() - radius, cloudPos.getZ() - radius,
+                    cloudPos.getX() + radius, cloudPos.getZ() + radius,
+                    MathHelper.floor(cloudPos.getY() + cloud.getHeight())
+            );
+        }
+
+        boolean contains(BlockPos pos) {
+            return pos.getY() <= maxY
+                    && pos.getX() >= minX && pos.getX() <= maxX
+                    && pos.getZ() >= minZ && pos.getZ() <= maxZ;
+        }
+
+        boolean coversSameChunks(Footprint other) {
+            return (minX >> 4) == (other.minX >> 4) && (maxX >> 4) == (other.maxX >> 4)
+                && (minZ >> 4) == (other.minZ >> 4) && (maxZ >> 4) == (other.maxZ >> 4);
+        }
+    }
+
     public static Vec3d getAirflow(BlockPos pos, World world) {
         BlockPos.Mutable probedPosition = new BlockPos.Mutable();
 
-        final float terrainFactor = getScaledDistanceFromTerrain(probedPosition.set(pos), world, MAX_TERRAIN_HEIGHT);
-        final float windFactor = getScaledDistanceFromTerrain(probedPosition.set(pos), world, MAX_WIND_HEIGHT);
+        final float altitude = LOCAL_ALTITUDE_FIELD.getValue(world, probedPosition.set(pos));
+        final float terrainFactor = Math.min(MAX_TERRAIN_HEIGHT, altitude) / MAX_TERRAIN_HEIGHT;
+        final float windFactor = Math.min(MAX_WIND_HEIGHT, altitude) / MAX_WIND_HEIGHT;
 
         Vec3d terrainGradient = LOCAL_ALTITUDE_FIELD.computeAverage(world, pos, probedPosition).multiply(1 - terrainFactor);
         Vec3d thermalGradient = THERMAL_FIELD.computeAverage(world, pos, probedPosition).multiply(1 - terrainFactor);
@@ -185,72 +248,75 @@ public class WeatherConditions extends PersistentState implements Tickable {
     }
 
     private static double getMaterialSurfaceTemperature(BlockPos.Mutable pos, World world) {
-        BlockState state = world.getBlockState(pos);
-
-        if (state.isAir()) {
-            return VOID_UPDRAFT;
-        }
-
-        if (state.isOf(Blocks.SOUL_SAND) || state.isOf(Blocks.SOUL_SOIL)) {
-            return SOUL_SAND_UPDRAFT;
-        }
-
-        if (state.isOf(Blocks.LAVA) || state.isOf(Blocks.LAVA_CAULDRON)
-                || state.isIn(BlockTags.FIRE)
-                || state.isIn(BlockTags.CAMPFIRES)
-                || state.isOf(Blocks.MAGMA_BLOCK)) {
-            return FIRE_UPDRAFT;
-        }
-
-        if (state.isIn(BlockTags.SAND)) {
-            return SAND_UPDRAFT * MeteorlogicalUtil.getSunIntensity(world);
-        }
-
-        if (state.isIn(BlockTags.SNOW) || state.isIn(BlockTags.ICE)) {
-            return ICE_UPDRAFT * MeteorlogicalUtil.getSunIntensity(world);
-        }
-
-        if (state.getFluidState().isIn(FluidTags.WATER)) {
-            float sunIntensity = MeteorlogicalUtil.getSunIntensity(world);
-            int depth = 0;
-            BlockPos.Mutable mutable = pos.mutableCopy();
-            while (depth < 15 && world.getFluidState(mutable).isIn(FluidTags.WATER)) {
-                mutable.move(Direction.DOWN);
-                depth++;
-            }
-
-            return sunIntensity * (depth / 15F);
-        }
-
-        return 0;
+        return AirflowField.of(world).getSurfaceTemperature(pos);
     }
 
     public static Vec3d getGustStrength(World world, BlockPos pos) {
-        Random random = getPositionalRandom(world, pos);
-        float strength = 0.015F * random.nextFloat();
+        long time = world.getTime();
+        double t = time / GUST_CELL_TICKS;
+        double x = pos.getX() / GUST_CELL_SIZE;
+        double z = pos.getZ() / GUST_CELL_SIZE;
+
+        float strength = 0.015F * (float)sampleGustNoise(GUST_STRENGTH_SALT, t, x, z);
 
-        if (random.nextInt(30) == 0) {
+        // surges are sudden, so they're picked per tick rather than blended across cells
+        long surge = hash(GUST_SURGE_SALT, time, MathHelper.floor(x), MathHelper.floor(z));
+        if ((surge & 0xFFFF) % 30 == 0) {
             strength *= 10;
         }
-        if (random.nextInt(30) == 0) {
+        if (((surge >>> 16) & 0xFFFF) % 30 == 0) {
             strength *= 10;
         }
-        if (random.nextInt(40) == 0) {
+        if (((surge >>> 32) & 0xFFFF) % 40 == 0) {
             strength *= 100;
         }
 
         strength = Math.min(strength, 7);
 
-        float pitch = (180 * random.nextFloat()) - 90;
-        float yaw = (180 * random.nextFloat()) - 90;
+        float pitch = (180 * (float)sampleGustNoise(GUST_PITCH_SALT, t, x, z)) - 90;
+        float yaw = (180 * (float)sampleGustNoise(GUST_YAW_SALT, t, x, z)) - 90;
 
         return new Vec3d(strength * world.getRainGradient(1), pitch, yaw);
     }
 
-    public static Random getPositionalRandom(World world, BlockPos pos) {
-        long posLong = ChunkPos.toLong(pos);
-        long time = world.getTime();
-        return Random.create(posLong + time);
+    /**
+     * Smoothly interpolated value noise over time and horizontal position in the range [0, 1).
+     */
+    private static double sampleGustNoise(long salt, double t, double x, double z) {
+        int t0 = MathHelper.floor(t);
+        int x0 = MathHelper.floor(x);
+        int z0 = MathHelper.floor(z);
+        return MathHelper.lerp3(
+                MathHelper.perlinFade(t - t0),
+                MathHelper.perlinFade(x - x0),
+                MathHelper.perlinFade(z - z0),
+                getLatticeValue(salt, t0, x0, z0),
+                getLatticeValue(salt, t0 + 1, x0, z0),
+                getLatticeValue(salt, t0, x0 + 1, z0),
+                getLatticeValue(salt, t0 + 1, x0 + 1, z0),
+                getLatticeValue(salt, t0, x0, z0 + 1),
+                getLatticeValue(salt, t0 + 1, x0, z0 + 1),
+                getLatticeValue(salt, t0, x0 + 1, z0 + 1),
+                getLatticeValue(salt, t0 + 1, x0 + 1, z0 + 1)
+        );
+    }
+
+    private static double getLatticeValue(long salt, long t, long x, long z) {
+        return (hash(salt, t, x, z) >>> 11) * 0x1.0p-53;
+    }
+
+    private static long hash(long salt, long t, long x, long z) {
+        long h = salt;
+        h = mix(h ^ (t * 0x9E3779B97F4A7C15L));
+        h = mix(h ^ (x * 0xC2B2AE3D27D4EB4FL));
+        h = mix(h ^ (z * 0x165667B19E3779F9L));
+        return h;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
     }
 
     public interface Plane {
@@ -1,6 +1,7 @@
 package com.minelittlepony.unicopia.server.world;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,8 +12,14 @@ import org.jetbrains.annotations.Nullable;
 import com.minelittlepony.unicopia.util.Tickable;
 import com.minelittlepony.unicopia.util.serialization.NbtSerialisable;
 
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
 import net.minecraft.datafixer.DataFixTypes;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.RegistryWrapper.WrapperLookup;
@@ -31,6 +38,19 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
 
     private final Long2ObjectMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
 
+    @Nullable
+    private RegionFileStorage storage;
+    private final LongSet loadedRegions = new LongOpenHashSet();
+    private final LongSet dirtyRegions = new LongOpenHashSet();
+    /**
+     * The number of chunks loaded in the world within each region. Regions are released once this drops to zero.
+     */
+    private final Long2IntMap loadedChunkCounts = new Long2IntOpenHashMap();
+    /**
+     * Serialised states of chunks that are not currently loaded in the world, kept until their region is saved.
+     */
+    private final Long2ObjectMap<NbtCompound> unloadedChunks = new Long2ObjectOpenHashMap<>();
+
     private final Object locker = new Object();
 
     private final Supplier<T> factory;
@@ -58,10 +78,10 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
 
     public static <T extends State> WorldOverlay<T> getOverlay(World world, Identifier id, Function<World, WorldOverlay<T>> overlayFactory) {
         return getPersistableStorage(world, id, (w, tag) -> {
-            WorldOverlay<T> overlay = overlayFactory.apply(w);
+            WorldOverlay<T> overlay = overlayFactory.apply(w).withRegionStorage(id);
             overlay.readNbt(tag, w.getRegistryManager());
             return overlay;
-        }, overlayFactory);
+        }, w -> overlayFactory.apply(w).withRegionStorage(id));
     }
 
     WorldOverlay(World world, Supplier<T> factory, @Nullable BiConsumer<Long2ObjectMap<T>, List<ServerPlayerEntity>> updateSender) {
@@ -70,49 +90,220 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
         this.updateSender = updateSender;
     }
 
+    private WorldOverlay<T> withRegionStorage(Identifier id) {
+        if (world instanceof ServerWorld serverWorld) {
+            storage = new RegionFileStorage(serverWorld, id);
+        }
+        return this;
+    }
+
     @Override
     public NbtCompound writeNbt(NbtCompound compound, WrapperLookup lookup) {
-        NbtCompound destructions = new NbtCompound();
-        this.chunks.forEach((id, chunk) -> {
-            destructions.put(id.toString(), chunk.toNBT(lookup));
-        });
-        compound.put("chunks", destructions);
-        return compound;
+        synchronized (locker) {
+            if (storage == null) {
+                NbtCompound destructions = new NbtCompound();
+                this.chunks.forEach((id, chunk) -> {
+                    destructions.put(id.toString(), chunk.toNBT(lookup));
+                });
+                compound.put("chunks", destructions);
+                return compound;
+            }
+
+            Long2ObjectMap<NbtCompound> regions = new Long2ObjectOpenHashMap<>();
+            LongSet occupiedRegions = new LongOpenHashSet();
+            dirtyRegions.forEach(region -> regions.put(region, new NbtCompound()));
+            this.chunks.forEach((id, chunk) -> {
+                long regionPos = RegionFileStorage.getRegion(id);
+                occupiedRegions.add(regionPos);
+                NbtCompound region = regions.get(regionPos);
+                if (region != null && !chunk.isEmpty()) {
+                    region.put(id.toString(), chunk.toNBT(lookup));
+                }
+            });
+            this.unloadedChunks.forEach((id, data) -> {
+                NbtCompound region = regions.get(RegionFileStorage.getRegion(id));
+                if (region != null) {
+                    region.put(id.toString(), data);
+                }
+            });
+            regions.forEach((region, data) -> {
+                NbtCompound nbt = new NbtCompound();
+                if (!data.isEmpty()) {
+                    nbt.put("chunks", data);
+                }
+                storage.write(region, nbt);
+            });
+            dirtyRegions.clear();
+
+            // regions without any loaded chunks are now fully on disk and can be let go
+            regions.keySet().forEach(region -> {
+                if (!occupiedRegions.contains(region) && !loadedChunkCounts.containsKey(region)) {
+                    loadedRegions.remove(region);
+                }
+            });
+            unloadedChunks.keySet().removeIf(id -> !loadedRegions.contains(RegionFileStorage.getRegion(id)));
+            return compound;
+        }
     }
 
     public void readNbt(NbtCompound compound, WrapperLookup lookup) {
-        NbtCompound d = compound.getCompound("chunks");
-        d.getKeys().forEach(id -> {
-            chunks.computeIfAbsent(Long.valueOf(id), Chunk::new).fromNBT(d.getCompound(id), lookup);
-        });
+        synchronized (locker) {
+            NbtCompound chunks = compound.getCompound("chunks");
+            if (storage == null) {
+                chunks.getKeys().forEach(id -> {
+                    this.chunks.computeIfAbsent(Long.parseLong(id), Chunk::new).fromNBT(chunks.getCompound(id), lookup);
+                });
+                return;
+            }
+            // Overlays saved before region storage was introduced keep everything in one compound.
+            // Hold onto it until the chunks load and let the next save move it out into region files.
+            chunks.getKeys().forEach(key -> {
+                long id = Long.parseLong(key);
+                long region = RegionFileStorage.getRegion(id);
+                unloadedChunks.put(id, chunks.getCompound(key));
+                loadedRegions.add(region);
+                dirtyRegions.add(region);
+            });
+            if (!dirtyRegions.isEmpty()) {
+                markDirty();
+            }
+        }
+    }
+
+    private void loadRegion(long chunkPos) {
+        if (storage == null) {
+            return;
+        }
+        long region = RegionFileStorage.getRegion(chunkPos);
+        if (loadedRegions.add(region)) {
+            NbtCompound data = storage.read(region);
+            if (data != null) {
+                NbtCompound chunks = data.getCompound("chunks");
+                chunks.getKeys().forEach(key -> {
+                    long id = Long.parseLong(key);
+                    // chunks already in memory are newer than what's on disk
+                    if (!this.chunks.containsKey(id)) {
+                        unloadedChunks.put(id, chunks.getCompound(key));
+                    }
+                });
+            }
+        }
+    }
+
+    private void markRegionDirty(long chunkPos) {
+        if (storage != null) {
+            // the region is rewritten as a whole, so whatever else is saved in it has to be read back in first
+            loadRegion(chunkPos);
+            dirtyRegions.add(RegionFileStorage.getRegion(chunkPos));
+        }
+        markDirty();
+    }
+
+    /**
+     * Forgets a region once nothing in it is loaded or waiting to be saved. It will be read again the next time it's needed.
+     */
+    private void releaseRegion(long region) {
+        if (dirtyRegions.contains(region) || !loadedRegions.remove(region)) {
+            return;
+        }
+        unloadedChunks.keySet().removeIf(id -> RegionFileStorage.getRegion(id) == region);
+    }
+
+    /**
+     * Called when a chunk is loaded into the world. Brings back any states that were saved for it.
+     */
+    public void onChunkLoaded(ChunkPos pos) {
+        synchronized (locker) {
+            long chunkPos = pos.toLong();
+            if (storage != null) {
+                loadedChunkCounts.addTo(RegionFileStorage.getRegion(chunkPos), 1);
+            }
+            restoreChunk(chunkPos);
+        }
+    }
+
+    /**
+     * Called when a chunk is unloaded from the world. The chunk's states are serialised
+     * (to be written out with their region on the next save) and evicted from memory.
+     */
+    public void onChunkUnloaded(ChunkPos pos) {
+        synchronized (locker) {
+            long chunkPos = pos.toLong();
+            Chunk chunk = chunks.remove(chunkPos);
+            if (storage == null) {
+                return;
+            }
+            if (chunk != null && !chunk.isEmpty()) {
+                unloadedChunks.put(chunkPos, chunk.toNBT(world.getRegistryManager()));
+                markRegionDirty(chunkPos);
+            }
+            long region = RegionFileStorage.getRegion(chunkPos);
+            if (loadedChunkCounts.addTo(region, -1) <= 1) {
+                loadedChunkCounts.remove(region);
+                releaseRegion(region);
+            }
+        }
     }
 
+    @Nullable
+    private Chunk restoreChunk(long chunkPos) {
+        loadRegion(chunkPos);
+        NbtCompound data = unloadedChunks.remove(chunkPos);
+        if (data == null) {
+            return chunks.get(chunkPos);
+        }
+        Chunk chunk = chunks.computeIfAbsent(chunkPos, Chunk::new);
+        chunk.fromNBT(data, world.getRegistryManager());
+        return chunk;
+    }
+
+    /**
+     * Gets the state at a position without allocating anything.
+     * Only chunks that are loaded in the world are considered.
+     */
     @Nullable
     public T getState(BlockPos pos) {
-        return getChunk(pos).getState(pos);
+        Chunk chunk = chunks.get(ChunkPos.toLong(pos));
+        return chunk == null ? null : chunk.getState(pos);
     }
 
     public T getOrCreateState(BlockPos pos) {
         synchronized (locker) {
-            return getChunk(pos).getOrCreateState(pos);
+            Chunk chunk = getOrCreateChunk(pos);
+            markRegionDirty(chunk.pos);
+            return chunk.getOrCreateState(pos);
         }
     }
 
-    private Chunk getChunk(BlockPos pos) {
-        return chunks.computeIfAbsent(ChunkPos.toLong(pos), Chunk::new);
+    private Chunk getOrCreateChunk(BlockPos pos) {
+        long chunkPos = ChunkPos.toLong(pos);
+        Chunk chunk = restoreChunk(chunkPos);
+        return chunk != null ? chunk : chunks.computeIfAbsent(chunkPos, Chunk::new);
     }
 
     public void setState(BlockPos pos, @Nullable T state) {
         synchronized (locker) {
-            getChunk(pos).setState(pos, state);
-            markDirty();
+            Chunk chunk = getOrCreateChunk(pos);
+            chunk.setState(pos, state);
+            markRegionDirty(chunk.pos);
         }
     }
 
     @Override
     public void tick() {
         synchronized (locker) {
-            chunks.long2ObjectEntrySet().removeIf(entry -> entry.getValue().tick());
+            chunks.long2ObjectEntrySet().removeIf(entry -> {
+                Chunk chunk = entry.getValue();
+                if (chunk.isEmpty()) {
+                    return true;
+                }
+                boolean empty = chunk.tick();
+                if (chunk.needsSaving) {
+                    chunk.needsSaving = false;
+                    markRegionDirty(entry.getLongKey());
+                }
+                return empty;
+            });
 
             if (world instanceof ServerWorld) {
                 chunks.forEach((chunkPos, chunk) -> chunk.sendUpdates((ServerWorld)world));
@@ -122,6 +313,16 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
 
     private class Chunk implements NbtSerialisable {
         private final Long2ObjectMap<T> states = new Long2ObjectOpenHashMap<>();
+        /**
+         * Players that have been sent the full contents of this chunk and only need to receive changes.
+         */
+        private final ReferenceSet<ServerPlayerEntity> syncedPlayers = new ReferenceOpenHashSet<>();
+        private boolean dirty;
+        /**
+         * Whether this chunk's states have changed since its region was last marked for saving.
+         * Kept apart from {@link #dirty}, which is cleared every time updates are sent.
+         */
+        private boolean needsSaving;
 
         private final long pos;
 
@@ -135,10 +336,14 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
         }
 
         public T getOrCreateState(BlockPos pos) {
+            dirty = true;
+            needsSaving = true;
             return states.computeIfAbsent(pos.asLong(), l -> factory.get());
         }
 
         public void setState(BlockPos pos, @Nullable T state) {
+            dirty = true;
+            needsSaving = true;
             if (state == null) {
                 states.remove(pos.asLong());
             } else {
@@ -146,8 +351,19 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
             }
         }
 
+        boolean isEmpty() {
+            return states.isEmpty();
+        }
+
         boolean tick() {
-            states.long2ObjectEntrySet().removeIf(e -> e.getValue().tick());
+            states.long2ObjectEntrySet().removeIf(e -> {
+                T state = e.getValue();
+                boolean removed = state.tick();
+                boolean changed = state.isDirty();
+                dirty |= changed;
+                needsSaving |= changed || removed;
+                return removed;
+            });
             return states.isEmpty();
         }
 
@@ -156,16 +372,35 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
                 return;
             }
 
-            if (!world.getChunkManager().isChunkLoaded(ChunkPos.getPackedX(pos), ChunkPos.getPackedZ(pos))) {
-                return;
-            }
-
             ServerChunkLoadingManager storage = world.getChunkManager().chunkLoadingManager;
 
-            List<ServerPlayerEntity> players = storage.getPlayersWatchingChunk(new ChunkPos(pos), false);
+            List<ServerPlayerEntity> players = world.getChunkManager().isChunkLoaded(ChunkPos.getPackedX(pos), ChunkPos.getPackedZ(pos))
+                    ? storage.getPlayersWatchingChunk(new ChunkPos(pos), false)
+                    : List.of();
+            List<ServerPlayerEntity> newPlayers = new ArrayList<>();
+            List<ServerPlayerEntity> existingPlayers = new ArrayList<>();
+            for (ServerPlayerEntity player : players) {
+                (syncedPlayers.contains(player) ? existingPlayers : newPlayers).add(player);
+            }
+            syncedPlayers.clear();
+            syncedPlayers.addAll(players);
 
-            if (!players.isEmpty()) {
-                updateSender.accept(states, players);
+            if (!newPlayers.isEmpty()) {
+                updateSender.accept(states, newPlayers);
+            }
+
+            if (dirty) {
+                dirty = false;
+                Long2ObjectMap<T> changes = new Long2ObjectOpenHashMap<>();
+                states.forEach((id, state) -> {
+                    if (state.isDirty()) {
+                        state.markSynced();
+                        changes.put(id.longValue(), state);
+                    }
+                });
+                if (!changes.isEmpty() && !existingPlayers.isEmpty()) {
+                    updateSender.accept(changes, existingPlayers);
+                }
             }
         }
 
@@ -181,7 +416,7 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
         @Override
         public void fromNBT(NbtCompound compound, WrapperLookup lookup) {
             NbtCompound d = compound.getCompound("states");
-            chunks.clear();
+            states.clear();
             d.getKeys().forEach(id -> {
                 states.computeIfAbsent(Long.valueOf(id), i -> factory.get()).fromNBT(d.getCompound(id), lookup);
             });
@@ -190,6 +425,25 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
 
     public interface State extends NbtSerialisable {
         boolean tick();
+
+        /**
+         * Whether this state has changed since it was last sent to clients.
+         * Overlays only send changed states to players that are already watching a chunk.
+         */
+        default boolean isDirty() {
+            return false;
+        }
+
+        default void markSynced() {
+
+        }
+    }
+
+    /**
+     * Releases all of the client-side stores. Called when leaving a server so they don't keep the old world alive.
+     */
+    public static void clearClientInstances() {
+        ClientInstance.INSTANCES.clear();
     }
 
     record ClientInstance<T extends PersistentState>(WeakReference<World> world, T instance) {
@@ -197,12 +451,13 @@ public class WorldOverlay<T extends WorldOverlay.State> extends PersistentState
 
         @SuppressWarnings("unchecked")
         public static <T extends PersistentState> ClientInstance<T> of(World world, Identifier id, Function<World, T> factory) {
-            return (ClientInstance<T>)INSTANCES.compute(id, (i, instance) -> {
-                if (instance == null || !instance.matches(world)) {
-                    return new ClientInstance<>(world, factory);
-                }
-                return instance;
-            });
+            ClientInstance<?> instance = INSTANCES.get(id);
+            if (instance == null || !instance.matches(world)) {
+                // stores belonging to a world we've since left are no longer reachable
+                INSTANCES.values().removeIf(i -> !i.matches(world));
+                INSTANCES.put(id, instance = new ClientInstance<>(world, factory));
+            }
+            return (ClientInstance<T>)instance;
         }
 
         public ClientInstance(World world, Function<World, T> factory) {
@@ -7,6 +7,7 @@ import org.jetbrains.annotations.Nullable;
 
 import com.minelittlepony.unicopia.USounds;
 import com.minelittlepony.unicopia.Unicopia;
+import com.minelittlepony.unicopia.block.zap.ZapStagedBlock;
 import com.minelittlepony.unicopia.network.Channel;
 import com.minelittlepony.unicopia.network.MsgZapAppleStage;
 import com.minelittlepony.unicopia.particle.LightningBoltParticleEffect;
@@ -15,20 +16,32 @@ import com.minelittlepony.unicopia.util.MeteorlogicalUtil;
 import com.minelittlepony.unicopia.util.Tickable;
 
 import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.block.BlockState;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.LightningEntity;
 import net.minecraft.nbt.*;
 import net.minecraft.network.codec.PacketCodec;
 import net.minecraft.network.codec.PacketCodecs;
 import net.minecraft.registry.RegistryWrapper.WrapperLookup;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.sound.SoundCategory;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.StringIdentifiable;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.PersistentState;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
 import net.minecraft.world.dimension.DimensionType;
 import net.minecraft.world.event.GameEvent;
 
@@ -50,6 +63,16 @@ public class ZapAppleStageStore extends PersistentState implements Tickable {
     private int nextLightningEvent = 1200;
     private float prevSkyAngle;
 
+    /**
+     * Positions of the staged zap leaves in each loaded chunk.
+     */
+    private final Long2ObjectMap<LongSet> leaves = new Long2ObjectOpenHashMap<>();
+    /**
+     * Leaves waiting to change to the current stage, keyed by the night tick their change comes due on.
+     */
+    private final Long2ObjectMap<LongList> transitions = new Long2ObjectOpenHashMap<>();
+    private long nightTicks;
+
     ZapAppleStageStore(World world, NbtCompound compound) {
         this(world);
         lastStage = Stage.VALUES[Math.max(0, compound.getInt("stage")) % Stage.VALUES.length];
@@ -82,6 +105,7 @@ public class ZapAppleStageStore extends PersistentState implements Tickable {
                     playedMoonEffect = false;
                     markDirty();
                     sendUpdate();
+                    scheduleTransitions();
                 }
             }
         } else if (stageChanged) {
@@ -90,6 +114,113 @@ public class ZapAppleStageStore extends PersistentState implements Tickable {
         }
 
         prevSkyAngle = skyAngle;
+
+        if (!world.isDay()) {
+            runTransitions(++nightTicks);
+        }
+    }
+
+    /**
+     * Starts tracking the zap leaves at a position so they change along with the stages.
+     */
+    public void trackLeaves(BlockPos pos) {
+        if (leaves.computeIfAbsent(ChunkPos.toLong(pos), c -> new LongOpenHashSet()).add(pos.asLong())) {
+            scheduleTransition(pos, world.getBlockState(pos));
+        }
+    }
+
+    public void onChunkLoaded(WorldChunk chunk) {
+        LongSet positions = null;
+        ChunkSection[] sections = chunk.getSectionArray();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int i = 0; i < sections.length; i++) {
+            ChunkSection section = sections[i];
+            // only the section's palette needs to be checked to know whether any leaves are in it
+            if (section.isEmpty() || !section.hasAny(ZapAppleStageStore::isStaged)) {
+                continue;
+            }
+            int minY = ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(i));
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        BlockState state = section.getBlockState(x, y, z);
+                        if (isStaged(state)) {
+                            if (positions == null) {
+                                positions = new LongOpenHashSet();
+                            }
+                            pos.set(chunk.getPos().getStartX() + x, minY + y, chunk.getPos().getStartZ() + z);
+                            positions.add(pos.asLong());
+                            scheduleTransition(pos, state);
+                        }
+                    }
+                }
+            }
+        }
+        if (positions != null) {
+            leaves.put(chunk.getPos().toLong(), positions);
+        }
+    }
+
+    public void onChunkUnloaded(ChunkPos pos) {
+        // any transitions still scheduled for this chunk are dropped when they come due
+        leaves.remove(pos.toLong());
+    }
+
+    private void scheduleTransitions() {
+        transitions.clear();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        leaves.values().forEach(positions -> {
+            positions.removeIf(p -> !scheduleTransition(pos.set(p), world.getBlockState(pos)));
+        });
+        leaves.values().removeIf(LongSet::isEmpty);
+    }
+
+    /**
+     * Picks the night tick on which the leaves at a position will change to the current stage.
+     * Each leaf has a one in <code>transitionRate</code> chance of changing on any given night tick, so the delay follows a geometric distribution.
+     *
+     * @return false if there are no longer any staged leaves at that position
+     */
+    private boolean scheduleTransition(BlockPos pos, BlockState state) {
+        if (!(state.getBlock() instanceof ZapStagedBlock block) || !block.isStaged(state)) {
+            return false;
+        }
+        if (block.getStage(state) != lastStage) {
+            int transitionRate = block.getTransitionRate(lastStage);
+            long delay = transitionRate <= 1 ? 0 : (long)(Math.log(1 - world.random.nextDouble()) / Math.log(1 - 1D / transitionRate));
+            transitions.computeIfAbsent(nightTicks + 1 + delay, t -> new LongArrayList()).add(pos.asLong());
+        }
+        return true;
+    }
+
+    private void runTransitions(long tick) {
+        LongList due = transitions.remove(tick);
+        if (due == null) {
+            return;
+        }
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int i = 0; i < due.size(); i++) {
+            long packed = due.getLong(i);
+            LongSet positions = leaves.get(ChunkPos.toLong(pos.set(packed)));
+            if (positions == null || !positions.contains(packed)) {
+                continue;
+            }
+            if (!((ServerWorld)world).shouldTickBlocksInChunk(ChunkPos.toLong(pos))) {
+                // leaves in chunks that aren't ticking wait until they are, same as a scheduled tick would
+                transitions.computeIfAbsent(tick + 20, t -> new LongArrayList()).add(packed);
+                continue;
+            }
+            BlockState state = world.getBlockState(pos);
+            if (state.getBlock() instanceof ZapStagedBlock block && block.isStaged(state)) {
+                block.advanceStage(this, state, (ServerWorld)world, pos.toImmutable(), world.random);
+            } else {
+                positions.remove(packed);
+            }
+        }
+    }
+
+    private static boolean isStaged(BlockState state) {
+        return state.getBlock() instanceof ZapStagedBlock block && block.isStaged(state);
     }
 
     protected void sendUpdate() {
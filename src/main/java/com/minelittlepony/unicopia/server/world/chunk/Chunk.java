@@ -1,68 +1,70 @@
 package com.minelittlepony.unicopia.server.world.chunk;
 
-import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.function.Consumer;
 
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.ChunkSectionPos;
 
 public class Chunk<T extends PositionalDataMap.Hotspot> {
-    private final Long2ObjectMap<Section<T>> sections = new Long2ObjectOpenHashMap<>();
-    private final Map<T, Set<Section<T>>> entryToSections = new WeakHashMap<>();
+    private final Int2ObjectMap<Section<T>> sections = new Int2ObjectOpenHashMap<>();
+    private final ReferenceSet<T> entries = new ReferenceOpenHashSet<>();
 
-    Chunk(long pos) { }
+    private final EntryIds<T> ids;
+    private final int x;
+    private final int z;
+
+    Chunk(long pos, EntryIds<T> ids) {
+        this.ids = ids;
+        this.x = ChunkPos.getPackedX(pos);
+        this.z = ChunkPos.getPackedZ(pos);
+    }
 
     public synchronized Set<T> getState(BlockPos pos) {
         Section<T> section = sections.get(ChunkSectionPos.getSectionCoord(pos.getY()));
         return section == null ? Set.of() : section.getState(pos);
     }
 
+    public synchronized List<T> getNearby(BlockPos pos) {
+        Section<T> section = sections.get(ChunkSectionPos.getSectionCoord(pos.getY()));
+        return section == null ? List.of() : section.getEntries();
+    }
+
     public synchronized Set<T> getStates() {
-        return new HashSet<>(entryToSections.keySet());
+        return new ReferenceOpenHashSet<>(entries);
     }
 
-    public synchronized boolean remove(T entry) {
-        Set<Section<T>> sections = entryToSections.remove(entry);
-        if (sections != null) {
-            sections.forEach(section -> {
-                if (section.remove(entry) && section.isEmpty()) {
-                    this.sections.remove(section.pos);
-                }
-            });
-            return true;
-        }
-        return false;
+    synchronized void forEachEntry(Consumer<T> consumer) {
+        entries.forEach(consumer);
     }
 
-    public synchronized boolean update(T entry, Box entryBox) {
-        Set<Section<T>> oldSections = entryToSections.get(entry);
-        Set<Section<T>> newSections = getIntersectingSections(entryBox);
-        if (oldSections != null) {
-            oldSections.forEach(section -> {
-                if (!newSections.contains(section) && section.remove(entry) && section.isEmpty()) {
-                    this.sections.remove(section.pos);
-                }
-            });
+    synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    synchronized boolean remove(T entry, int id, PositionalDataMap.Placement placement) {
+        if (!entries.remove(entry)) {
+            return false;
+        }
+        for (int y = ChunkSectionPos.getSectionCoord(placement.minY()); y <= ChunkSectionPos.getSectionCoord(placement.maxY()); y++) {
+            Section<T> section = sections.get(y);
+            if (section != null && section.remove(id, placement) && section.isEmpty()) {
+                sections.remove(y);
+            }
         }
-        newSections.forEach(chunk -> chunk.update(entry, entryBox));
-        entryToSections.put(entry, newSections);
         return true;
     }
 
-    private Set<Section<T>> getIntersectingSections(Box entryBox) {
-        Set<Section<T>> sections = new HashSet<>();
-
-        int minY = ChunkSectionPos.getSectionCoord(entryBox.minY);
-        int maxY = ChunkSectionPos.getSectionCoord(entryBox.maxY);
-        for (int y = minY; y <= maxY; y++) {
-            sections.add(this.sections.computeIfAbsent(y, Section::new));
+    synchronized void add(T entry, int id, PositionalDataMap.Placement placement) {
+        entries.add(entry);
+        for (int y = ChunkSectionPos.getSectionCoord(placement.minY()); y <= ChunkSectionPos.getSectionCoord(placement.maxY()); y++) {
+            sections.computeIfAbsent(y, sectionY -> new Section<>(ids, x, sectionY, z)).add(id, placement);
         }
-
-        return sections;
     }
 }
@@ -0,0 +1,61 @@
+package com.minelittlepony.unicopia.server.world.chunk;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/**
+ * Interns entries of a positional data map to small integer ids so sections can refer to them by number.
+ * Ids are recycled once their entry is removed from the map.
+ */
+final class EntryIds<T> {
+    private final Reference2IntMap<T> ids = new Reference2IntOpenHashMap<>();
+    private final ObjectArrayList<T> entries = new ObjectArrayList<>();
+    private final ObjectArrayList<PositionalDataMap.Placement> placements = new ObjectArrayList<>();
+    private final IntArrayList freeIds = new IntArrayList();
+
+    EntryIds() {
+        ids.defaultReturnValue(-1);
+    }
+
+    int acquire(T entry) {
+        int id = ids.getInt(entry);
+        if (id != -1) {
+            return id;
+        }
+        if (freeIds.isEmpty()) {
+            id = entries.size();
+            entries.add(entry);
+            placements.add(null);
+        } else {
+            id = freeIds.popInt();
+            entries.set(id, entry);
+        }
+        ids.put(entry, id);
+        return id;
+    }
+
+    void release(int id) {
+        ids.removeInt(entries.get(id));
+        entries.set(id, null);
+        placements.set(id, null);
+        freeIds.push(id);
+    }
+
+    int getId(T entry) {
+        return ids.getInt(entry);
+    }
+
+    T getEntry(int id) {
+        return entries.get(id);
+    }
+
+    PositionalDataMap.Placement getPlacement(int id) {
+        return placements.get(id);
+    }
+
+    void setPlacement(int id, PositionalDataMap.Placement placement) {
+        placements.set(id, placement);
+    }
+}
@@ -1,65 +1,177 @@
 package com.minelittlepony.unicopia.server.world.chunk;
 
-import java.util.HashSet;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 import org.jetbrains.annotations.Nullable;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import net.minecraft.util.math.BlockBox;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.MathHelper;
 
 public class PositionalDataMap<T extends PositionalDataMap.Hotspot> {
     private final Long2ObjectMap<Chunk<T>> chunks = new Long2ObjectOpenHashMap<>();
-    private final Map<T, Set<Chunk<T>>> entryToChunks = new WeakHashMap<>();
+    private final Reference2ObjectMap<T, LongSet> entryToChunks = new Reference2ObjectOpenHashMap<>();
 
-    public Set<T> getState(BlockPos pos) {
+    private final EntryIds<T> ids = new EntryIds<>();
+
+    private final int margin;
+
+    public PositionalDataMap() {
+        this(0);
+    }
+
+    /**
+     * @param margin Extra distance (in blocks) added around every entry's bounds when placing it into sections.
+     *               Used by indices whose entries can drift slightly between updates.
+     */
+    public PositionalDataMap(int margin) {
+        this.margin = margin;
+    }
+
+    public synchronized Set<T> getState(BlockPos pos) {
         Chunk<T> chunk = chunks.get(ChunkPos.toLong(pos));
         return chunk == null ? Set.of() : chunk.getState(pos);
     }
 
+    /**
+     * Gets all entries whose bounds overlap the chunk section containing the given position.
+     * This is a coarse broadphase. Callers are expected to perform their own precise range checks.
+     */
+    public synchronized List<T> getNearby(BlockPos pos) {
+        Chunk<T> chunk = chunks.get(ChunkPos.toLong(pos));
+        return chunk == null ? List.of() : chunk.getNearby(pos);
+    }
+
+    /**
+     * Gets all entries whose bounds overlap the given region.
+     * Like {@link #getNearby(BlockPos)} this is only a coarse check.
+     */
+    public synchronized List<T> getNearby(BlockBox region) {
+        List<T> result = new ArrayList<>();
+        ReferenceSet<T> visited = new ReferenceOpenHashSet<>();
+        for (int x = ChunkSectionPos.getSectionCoord(region.getMinX()); x <= ChunkSectionPos.getSectionCoord(region.getMaxX()); x++) {
+            for (int z = ChunkSectionPos.getSectionCoord(region.getMinZ()); z <= ChunkSectionPos.getSectionCoord(region.getMaxZ()); z++) {
+                Chunk<T> chunk = chunks.get(ChunkPos.toLong(x, z));
+                if (chunk != null) {
+                    chunk.forEachEntry(entry -> {
+                        if (visited.add(entry) && ids.getPlacement(ids.getId(entry)).intersects(region)) {
+                            result.add(entry);
+                        }
+                    });
+                }
+            }
+        }
+        return result;
+    }
+
     @Nullable
-    public Chunk<T> getChunk(ChunkPos pos) {
+    public synchronized Chunk<T> getChunk(ChunkPos pos) {
         return chunks.get(pos.toLong());
     }
 
-    public void remove(T entry) {
-        Set<Chunk<T>> chunks = entryToChunks.remove(entry);
+    public synchronized void remove(T entry) {
+        LongSet chunks = entryToChunks.remove(entry);
         if (chunks != null) {
-            chunks.forEach(chunk -> chunk.remove(entry));
+            int id = ids.getId(entry);
+            Placement placement = ids.getPlacement(id);
+            chunks.forEach(pos -> removeFromChunk(pos, entry, id, placement));
+            ids.release(id);
         }
     }
 
-    public void update(T entry) {
-        Box entryBox = new Box(entry.getCenter()).expand(MathHelper.ceil(entry.getRadius()));
-        Set<Chunk<T>> oldChunks = entryToChunks.get(entry);
-        Set<Chunk<T>> newChunks = getIntersectingChunks(entryBox);
+    public synchronized void update(T entry) {
+        Placement placement = new Placement(entry.getCenter().toImmutable(), MathHelper.ceil(entry.getRadius()), margin);
+        LongSet oldChunks = entryToChunks.get(entry);
+        int id;
+
         if (oldChunks != null) {
-            oldChunks.forEach(chunk -> chunk.remove(entry));
+            int oldId = ids.getId(entry);
+            Placement oldPlacement = ids.getPlacement(oldId);
+            if (oldPlacement.equals(placement)) {
+                return;
+            }
+            oldChunks.forEach(pos -> removeFromChunk(pos, entry, oldId, oldPlacement));
+            id = oldId;
+        } else {
+            id = ids.acquire(entry);
+        }
+
+        ids.setPlacement(id, placement);
+        LongSet newChunks = new LongOpenHashSet();
+        for (int x = ChunkSectionPos.getSectionCoord(placement.minX()); x <= ChunkSectionPos.getSectionCoord(placement.maxX()); x++) {
+            for (int z = ChunkSectionPos.getSectionCoord(placement.minZ()); z <= ChunkSectionPos.getSectionCoord(placement.maxZ()); z++) {
+                long pos = ChunkPos.toLong(x, z);
+                newChunks.add(pos);
+                chunks.computeIfAbsent(pos, p -> new Chunk<>(p, ids)).add(entry, id, placement);
+            }
         }
-        newChunks.forEach(chunk -> chunk.update(entry, entryBox));
         entryToChunks.put(entry, newChunks);
     }
 
-    private Set<Chunk<T>> getIntersectingChunks(Box entryBox) {
-        int minX = ChunkSectionPos.getSectionCoord(entryBox.minX);
-        int maxX = ChunkSectionPos.getSectionCoord(entryBox.maxX);
-        int minZ = ChunkSectionPos.getSectionCoord(entryBox.minZ);
-        int maxZ = ChunkSectionPos.getSectionCoord(entryBox.maxZ);
+    private void removeFromChunk(long pos, T entry, int id, Placement placement) {
+        Chunk<T> chunk = chunks.get(pos);
+        if (chunk != null && chunk.remove(entry, id, placement) && chunk.isEmpty()) {
+            chunks.remove(pos);
+        }
+    }
 
-        Set<Chunk<T>> chunks = new HashSet<>();
-        for (int x = minX; x <= maxX; x++) {
-            for (int z = minZ; z <= maxZ; z++) {
-                chunks.add(this.chunks.computeIfAbsent(ChunkPos.toLong(x, z), Chunk::new));
-            }
+    /**
+     * The area covered by an entry at the time it was last placed.
+     *
+     * @param center The block at the center of the entry
+     * @param radius The (rounded up) radius of the entry's sphere
+     * @param margin Padding added to the entry's bounds for section broadphase
+     */
+    record Placement(BlockPos center, int radius, int margin) {
+        int minX() {
+            return center.getX() - radius - margin;
+        }
+
+        int maxX() {
+            return center.getX() + radius + margin;
+        }
+
+        int minY() {
+            return center.getY() - radius - margin;
+        }
+
+        int maxY() {
+            return center.getY() + radius + margin;
+        }
+
+        int minZ() {
+            return center.getZ() - radius - margin;
+        }
+
+        int maxZ() {
+            return center.getZ() + radius + margin;
+        }
+
+        boolean intersects(BlockBox box) {
+            return maxX() >= box.getMinX() && minX() <= box.getMaxX()
+                && maxY() >= box.getMinY() && minY() <= box.getMaxY()
+                && maxZ() >= box.getMinZ() && minZ() <= box.getMaxZ();
+        }
+
+        boolean contains(int x, int y, int z) {
+            int dx = x - center.getX();
+            int dy = y - center.getY();
+            int dz = z - center.getZ();
+            int distance = dx * dx + dy * dy + dz * dz;
+            return distance == 0 || distance < radius * radius;
         }
-        return chunks;
     }
 
     public interface Hotspot {
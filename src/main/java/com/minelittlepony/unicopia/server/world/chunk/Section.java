@@ -1,82 +1,227 @@
 package com.minelittlepony.unicopia.server.world.chunk;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.WeakHashMap;
 
+import org.jetbrains.annotations.Nullable;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceArraySet;
+import it.unimi.dsi.fastutil.objects.ReferenceSets;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Box;
-import net.minecraft.util.math.MathHelper;
 
+/**
+ * A 16x16x16 cube of a positional data map.
+ * <p>
+ * Per-block states are stored as indices into a palette of distinct entry combinations,
+ * so a section that is covered by a handful of overlapping spheres only stores a handful of sets.
+ * The block array is only allocated the first time a block is queried and is then kept up to date
+ * incrementally as entries are added and removed.
+ */
 public class Section<T extends PositionalDataMap.Hotspot> {
-    private final Set<T> entries = weakSet();
-    private Set<T>[] states;
+    private static final int SIZE = 16 * 16 * 16;
+
+    private final EntryIds<T> ids;
+    private final IntList entries = new IntArrayList();
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
 
-    final long pos;
+    @Nullable
+    private short[] states;
+    @Nullable
+    private Palette palette;
 
-    public Section(long pos) {
-        this.pos = pos;
+    Section(EntryIds<T> ids, int x, int y, int z) {
+        this.ids = ids;
+        this.minX = x << 4;
+        this.minY = y << 4;
+        this.minZ = z << 4;
     }
 
     public boolean isEmpty() {
         return entries.isEmpty();
     }
 
-    public boolean remove(T entry) {
-        if (entries.remove(entry)) {
-            states = null;
-            return true;
+    public List<T> getEntries() {
+        List<T> result = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            result.add(ids.getEntry(entries.getInt(i)));
         }
-        return false;
+        return result;
     }
 
-    public boolean update(T entry, Box box) {
-        entries.add(entry);
-        states = null;
+    boolean remove(int id, PositionalDataMap.Placement placement) {
+        int index = entries.indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        entries.removeInt(index);
+        if (entries.isEmpty()) {
+            states = null;
+            palette = null;
+        } else if (states != null) {
+            apply(id, placement, false);
+        }
         return true;
     }
 
-    @SuppressWarnings("unchecked")
+    void add(int id, PositionalDataMap.Placement placement) {
+        if (!entries.contains(id)) {
+            entries.add(id);
+            if (states != null) {
+                apply(id, placement, true);
+            }
+        }
+    }
+
     public Set<T> getState(BlockPos pos) {
-        int localPos = toLocalIndex(pos);
         if (states == null) {
-            states = new Set[16 * 16 * 16];
+            states = new short[SIZE];
+            palette = new Palette();
+            for (int i = 0; i < entries.size(); i++) {
+                int id = entries.getInt(i);
+                apply(id, ids.getPlacement(id), true);
+            }
         }
-        Set<T> state = states[localPos];
-        return state == null ? (states[localPos] = calculateState(pos)) : state;
+        return palette.getView(states[toLocalIndex(pos)]);
     }
 
-    private Set<T> calculateState(BlockPos pos) {
-        Set<T> state = weakSet();
-
-        for (T entry : entries) {
-            BlockPos center = entry.getCenter();
-            int radius = MathHelper.ceil(entry.getRadius());
-
-            if (pos.equals(center)
-                   || (isInRange(pos.getX(), center.getX(), radius)
-                    && isInRange(pos.getZ(), center.getZ(), radius)
-                    && isInRange(pos.getY(), center.getY(), radius)
-                    && center.isWithinDistance(pos, radius))) {
-                state.add(entry);
+    private void apply(int id, PositionalDataMap.Placement placement, boolean add) {
+        int minX = Math.max(this.minX, placement.center().getX() - placement.radius());
+        int minY = Math.max(this.minY, placement.center().getY() - placement.radius());
+        int minZ = Math.max(this.minZ, placement.center().getZ() - placement.radius());
+        int maxX = Math.min(this.minX + 15, placement.center().getX() + placement.radius());
+        int maxY = Math.min(this.minY + 15, placement.center().getY() + placement.radius());
+        int maxZ = Math.min(this.minZ + 15, placement.center().getZ() + placement.radius());
+
+        // blocks covered by the same combination of entries will transition to the same combination
+        Int2IntMap transitions = new Int2IntOpenHashMap();
+        transitions.defaultReturnValue(-1);
+
+        for (int y = minY; y <= maxY; y++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (placement.contains(x, y, z)) {
+                        int index = toLocalIndex(x, y, z);
+                        int from = states[index];
+                        int to = transitions.get(from);
+                        if (to == -1) {
+                            to = add ? palette.with(from, id) : palette.without(from, id);
+                            transitions.put(from, to);
+                        }
+                        palette.retain(to);
+                        palette.release(from);
+                        states[index] = (short)to;
+                    }
+                }
             }
         }
-
-        return state;
     }
 
-    static boolean isInRange(int value, int center, int radius) {
-        return value >= center - radius && value <= center + radius;
+    static int toLocalIndex(BlockPos pos) {
+        return toLocalIndex(pos.getX(), pos.getY(), pos.getZ());
     }
 
-    static int toLocalIndex(BlockPos pos) {
-        int x = pos.getX() % 16;
-        int y = pos.getY() % 16;
-        int z = pos.getZ() % 16;
-        return x + (y * 16) + (z * 16 * 16);
+    static int toLocalIndex(int x, int y, int z) {
+        return (x & 15) + ((y & 15) * 16) + ((z & 15) * 16 * 16);
     }
 
-    static<T> Set<T> weakSet() {
-        return Collections.newSetFromMap(new WeakHashMap<>());
+    /**
+     * Reference-counted list of the distinct sets of entry ids present in a section.
+     * Index 0 is always the empty set.
+     */
+    private final class Palette {
+        private final List<IntList> sets = new ArrayList<>();
+        private final List<Set<T>> views = new ArrayList<>();
+        private final IntList references = new IntArrayList();
+        private final IntList freeSlots = new IntArrayList();
+        private final Object2IntMap<IntList> lookup = new Object2IntOpenHashMap<>();
+
+        Palette() {
+            lookup.defaultReturnValue(-1);
+            sets.add(IntList.of());
+            views.add(Set.of());
+            references.add(SIZE);
+            lookup.put(IntList.of(), 0);
+        }
+
+        int with(int index, int id) {
+            IntList set = new IntArrayList(sets.get(index));
+            int insertion = 0;
+            while (insertion < set.size() && set.getInt(insertion) < id) {
+                insertion++;
+            }
+            if (insertion < set.size() && set.getInt(insertion) == id) {
+                return index;
+            }
+            set.add(insertion, id);
+            return getOrCreate(set);
+        }
+
+        int without(int index, int id) {
+            IntList set = new IntArrayList(sets.get(index));
+            if (!set.rem(id)) {
+                return index;
+            }
+            return getOrCreate(set);
+        }
+
+        void retain(int index) {
+            references.set(index, references.getInt(index) + 1);
+        }
+
+        void release(int index) {
+            int count = references.getInt(index) - 1;
+            references.set(index, count);
+            if (count <= 0 && index != 0) {
+                lookup.removeInt(sets.get(index));
+                sets.set(index, null);
+                views.set(index, null);
+                freeSlots.add(index);
+            }
+        }
+
+        Set<T> getView(int index) {
+            Set<T> view = views.get(index);
+            if (view == null) {
+                IntList set = sets.get(index);
+                Object[] values = new Object[set.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = ids.getEntry(set.getInt(i));
+                }
+                views.set(index, view = ReferenceSets.unmodifiable(new ReferenceArraySet<>(values)));
+            }
+            return view;
+        }
+
+        private int getOrCreate(IntList set) {
+            int index = lookup.getInt(set);
+            if (index != -1) {
+                return index;
+            }
+            if (freeSlots.isEmpty()) {
+                if (sets.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Section palette overflow");
+                }
+                index = sets.size();
+                sets.add(set);
+                views.add(null);
+                references.add(0);
+            } else {
+                index = freeSlots.removeInt(freeSlots.size() - 1);
+                sets.set(index, set);
+                references.set(index, 0);
+            }
+            lookup.put(set, index);
+            return index;
+        }
     }
 }
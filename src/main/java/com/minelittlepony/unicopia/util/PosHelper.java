@@ -5,6 +5,7 @@ import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.Spliterators.AbstractSpliterator;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -119,6 +120,14 @@ public interface PosHelper {
             return visitedPositions.contains(pos.asLong());
         }
 
+        public void visit(long pos) {
+            visitedPositions.add(pos);
+        }
+
+        public boolean hasVisited(long pos) {
+            return visitedPositions.contains(pos);
+        }
+
         public int size() {
             return visitedPositions.size();
         }
@@ -135,6 +144,10 @@ public interface PosHelper {
             visitedPositions.forEach(l -> consumer.accept(mutable.set(l)));
         }
 
+        public void forEach(LongConsumer consumer) {
+            visitedPositions.forEach(consumer);
+        }
+
         public interface Reactor {
             void react(World w, BlockState state, BlockPos pos);
         }